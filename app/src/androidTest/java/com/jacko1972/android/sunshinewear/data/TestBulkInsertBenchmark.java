@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.jacko1972.android.sunshinewear.utilities.SunshineDateUtils;
+
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry.COLUMN_DATE;
+import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry.COLUMN_DEGREES;
+import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry.COLUMN_HUMIDITY;
+import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry.COLUMN_LOC_KEY;
+import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry.COLUMN_MAX_TEMP;
+import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry.COLUMN_MIN_TEMP;
+import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry.COLUMN_PRESSURE;
+import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry.COLUMN_WEATHER_ID;
+import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry.COLUMN_WIND_SPEED;
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Measures how many rows per second each way of inserting weather data manages, for the 14 rows
+ * of a normal sync as well as for much larger batches. The results are written to logcat under
+ * the "BulkInsertBenchmark" tag.
+ * <p>
+ * Three paths are compared:
+ * <p>
+ *   1) The original bulkInsert implementation, one SQLiteDatabase#insert per ContentValues
+ * <p>
+ *   2) WeatherProvider#bulkInsert, which binds ContentValues into a compiled statement
+ * <p>
+ *   3) The ForecastBatch path, which binds primitive arrays into the same compiled statement
+ * <p>
+ * The benchmarks take minutes and only log their results, so they are left out of the normal
+ * instrumented run. Remove the @Ignore locally to run them.
+ */
+@Ignore("Benchmark, run on demand")
+@RunWith(AndroidJUnit4.class)
+public class TestBulkInsertBenchmark {
+
+    private static final String TAG = "BulkInsertBenchmark";
+
+    /* Each measurement is repeated and the best run is reported, to smooth out warm up and GC */
+    private static final int RUNS = 3;
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    @Before
+    public void setUp() {
+        WeatherDbHelper helper = new WeatherDbHelper(mContext);
+        SQLiteDatabase database = helper.getWritableDatabase();
+        database.delete(WeatherContract.WeatherEntry.TABLE_NAME, null, null);
+        database.delete(WeatherContract.LocationEntry.TABLE_NAME, null, null);
+        TestUtilities.insertTestLocation(database);
+        database.close();
+    }
+
+    @Test
+    public void benchmarkFourteenRows() {
+        benchmark(14);
+    }
+
+    @Test
+    public void benchmarkOneThousandRows() {
+        benchmark(1000);
+    }
+
+    @Test
+    public void benchmarkOneHundredThousandRows() {
+        benchmark(100000);
+    }
+
+    private void benchmark(int rowCount) {
+        ContentValues[] values = createContentValues(rowCount);
+        ForecastBatch batch = createForecastBatch(rowCount);
+
+        long legacyNanos = Long.MAX_VALUE;
+        long contentValuesNanos = Long.MAX_VALUE;
+        long batchNanos = Long.MAX_VALUE;
+
+        for (int run = 0; run < RUNS; run++) {
+            deleteAllRecordsFromWeatherTable();
+            long start = System.nanoTime();
+            assertEquals(rowCount, legacyBulkInsert(values));
+            legacyNanos = Math.min(legacyNanos, System.nanoTime() - start);
+
+            deleteAllRecordsFromWeatherTable();
+            start = System.nanoTime();
+            assertEquals(rowCount, mContext.getContentResolver()
+                    .bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, values));
+            contentValuesNanos = Math.min(contentValuesNanos,
+                    System.nanoTime() - start);
+
+            deleteAllRecordsFromWeatherTable();
+            start = System.nanoTime();
+            Bundle extras = new Bundle();
+            batch.writeToBundle(extras);
+            Bundle result = mContext.getContentResolver().call(
+                    WeatherContract.WeatherEntry.CONTENT_URI,
+                    WeatherContract.WeatherEntry.METHOD_BULK_INSERT_BATCH,
+                    TestUtilities.TEST_LOCATION_SETTING,
+                    extras);
+            assertEquals(rowCount, result.getInt(WeatherContract.WeatherEntry.EXTRA_ROWS_INSERTED));
+            batchNanos = Math.min(batchNanos, System.nanoTime() - start);
+        }
+
+        Log.i(TAG, rowCount + " rows: legacy insert " + rowsPerSecond(rowCount, legacyNanos)
+                + " rows/s, compiled ContentValues " + rowsPerSecond(rowCount, contentValuesNanos)
+                + " rows/s, compiled ForecastBatch " + rowsPerSecond(rowCount, batchNanos)
+                + " rows/s");
+    }
+
+    /**
+     * The way WeatherProvider#bulkInsert used to insert rows, kept here as the baseline.
+     */
+    private int legacyBulkInsert(ContentValues[] values) {
+        WeatherDbHelper helper = new WeatherDbHelper(mContext);
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        int rowsInserted = 0;
+        db.beginTransaction();
+        try {
+            for (ContentValues value : values) {
+                long weatherDate = value.getAsLong(COLUMN_DATE);
+                if (!SunshineDateUtils.isDateNormalized(weatherDate)) {
+                    throw new IllegalArgumentException("Date must be normalized to insert");
+                }
+
+                long _id = db.insert(WeatherContract.WeatherEntry.TABLE_NAME, null, value);
+                if (_id != -1) {
+                    rowsInserted++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        db.close();
+        return rowsInserted;
+    }
+
+    private static long rowsPerSecond(int rowCount, long nanos) {
+        return rowCount * 1000000000L / Math.max(nanos, 1);
+    }
+
+    private static ContentValues[] createContentValues(int rowCount) {
+        ContentValues[] values = new ContentValues[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            ContentValues weatherValues = new ContentValues();
+            weatherValues.put(COLUMN_DATE,
+                    TestUtilities.DATE_NORMALIZED + i * SunshineDateUtils.DAY_IN_MILLIS);
+            weatherValues.put(COLUMN_WEATHER_ID, 321);
+            weatherValues.put(COLUMN_MIN_TEMP, 65.0 - i % 10);
+            weatherValues.put(COLUMN_MAX_TEMP, 75.0 + i % 10);
+            weatherValues.put(COLUMN_HUMIDITY, 1.2);
+            weatherValues.put(COLUMN_PRESSURE, 1.3);
+            weatherValues.put(COLUMN_WIND_SPEED, 5.5);
+            weatherValues.put(COLUMN_DEGREES, 1.1);
+            weatherValues.put(COLUMN_LOC_KEY, TestUtilities.TEST_LOCATION_ID);
+            values[i] = weatherValues;
+        }
+        return values;
+    }
+
+    private static ForecastBatch createForecastBatch(int rowCount) {
+        ForecastBatch batch = new ForecastBatch(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            batch.add(TestUtilities.DATE_NORMALIZED + i * SunshineDateUtils.DAY_IN_MILLIS,
+                    321,
+                    65.0 - i % 10,
+                    75.0 + i % 10,
+                    1.2,
+                    1.3,
+                    5.5,
+                    1.1);
+        }
+        return batch;
+    }
+
+    private void deleteAllRecordsFromWeatherTable() {
+        WeatherDbHelper helper = new WeatherDbHelper(mContext);
+        SQLiteDatabase database = helper.getWritableDatabase();
+        database.delete(WeatherContract.WeatherEntry.TABLE_NAME, null, null);
+        database.close();
+    }
+}
@@ -193,7 +193,7 @@ public class TestSunshineDatabase {
 
     @Test
     public void testDatabaseVersionWasIncremented() {
-        int expectedDatabaseVersion = 3;
+        int expectedDatabaseVersion = 4;
         String databaseVersionShouldBe1 = "Database version should be "
                 + expectedDatabaseVersion + " but isn't."
                 + "\n Database version: ";
@@ -438,12 +438,10 @@ public class TestSunshineDatabase {
 
     /**
      * This method tests that our database contains all of the tables that we think it should
-     * contain. Although in our case, we just have one table that we expect should be added
+     * contain. In our case, those are
      * <p>
-     * {@link com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry#TABLE_NAME}.
-     * <p>
-     * Despite only needing to check one table name in Sunshine, we set this method up so that
-     * you can use it in other apps to test databases with more than one table.
+     * {@link com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry#TABLE_NAME} and
+     * {@link com.jacko1972.android.sunshinewear.data.WeatherContract.LocationEntry#TABLE_NAME}.
      */
     @Test
     public void testCreateDb() {
@@ -454,11 +452,9 @@ public class TestSunshineDatabase {
          */
         final HashSet<String> tableNameHashSet = new HashSet<>();
 
-        /* Here, we add the name of our only table in this particular database */
+        /* Here, we add the names of the tables in this particular database */
         tableNameHashSet.add(REFLECTED_TABLE_NAME);
-        /* Students, here is where you would add any other table names if you had them */
-//        tableNameHashSet.add(MyAwesomeSuperCoolTableName);
-//        tableNameHashSet.add(MyOtherCoolTableNameThatContainsOtherCoolData);
+        tableNameHashSet.add(WeatherContract.LocationEntry.TABLE_NAME);
 
         /* We think the database is open, let's verify that here */
         String databaseIsNotOpen = "The database should be open and isn't";
@@ -35,15 +35,19 @@ import static junit.framework.Assert.fail;
 public class TestUriMatcher {
 
     private static final Uri TEST_WEATHER_DIR = WeatherContract.WeatherEntry.CONTENT_URI;
-    private static final Uri TEST_WEATHER_WITH_DATE_DIR = WeatherContract.WeatherEntry
-            .buildWeatherUriWithDate(TestUtilities.DATE_NORMALIZED);
+    private static final Uri TEST_WEATHER_WITH_DATE_DIR = WeatherContract.WeatherEntry.CONTENT_URI
+            .buildUpon()
+            .appendPath(Long.toString(TestUtilities.DATE_NORMALIZED))
+            .build();
+    private static final Uri TEST_WEATHER_WITH_LOCATION_DIR = WeatherContract.WeatherEntry
+            .buildWeatherUriWithLocation(TestUtilities.TEST_LOCATION_SETTING);
+    private static final Uri TEST_WEATHER_WITH_LOCATION_AND_DATE_DIR = WeatherContract.WeatherEntry
+            .buildWeatherUriWithLocationAndDate(TestUtilities.TEST_LOCATION_SETTING,
+                    TestUtilities.DATE_NORMALIZED);
 
     private static final String weatherCodeVariableName = "CODE_WEATHER";
     private static int REFLECTED_WEATHER_CODE;
 
-    private static final String weatherCodeWithDateVariableName = "CODE_WEATHER_WITH_DATE";
-    private static int REFLECTED_WEATHER_WITH_DATE_CODE;
-
     private UriMatcher testMatcher;
 
     @Before
@@ -57,10 +61,6 @@ public class TestUriMatcher {
                     WeatherProvider.class,
                     weatherCodeVariableName);
 
-            REFLECTED_WEATHER_WITH_DATE_CODE = getStaticIntegerField(
-                    WeatherProvider.class,
-                    weatherCodeWithDateVariableName);
-
         } catch (NoSuchFieldException e) {
             fail(studentReadableNoSuchField(e));
         } catch (IllegalAccessException e) {
@@ -92,14 +92,23 @@ public class TestUriMatcher {
                 actualWeatherCode);
 
         /*
-         * Test that the code returned from our matcher matches the expected weather with date code
+         * A date without a location would match one row per location, so it must not be matched
          */
-        String weatherWithDateUriCodeDoesNotMatch =
-                "Error: The CODE_WEATHER WITH DATE URI was matched incorrectly.";
-        int actualWeatherWithDateCode = testMatcher.match(TEST_WEATHER_WITH_DATE_DIR);
-        int expectedWeatherWithDateCode = REFLECTED_WEATHER_WITH_DATE_CODE;
-        assertEquals(weatherWithDateUriCodeDoesNotMatch,
-                expectedWeatherWithDateCode,
-                actualWeatherWithDateCode);
+        String weatherWithDateUriMatched =
+                "Error: A weather URI with a date but no location was matched.";
+        assertEquals(weatherWithDateUriMatched,
+                UriMatcher.NO_MATCH,
+                testMatcher.match(TEST_WEATHER_WITH_DATE_DIR));
+
+        /* Test the URIs for the weather of a single location, and for the locations themselves */
+        assertEquals("Error: The CODE_WEATHER_WITH_LOCATION URI was matched incorrectly.",
+                WeatherProvider.CODE_WEATHER_WITH_LOCATION,
+                testMatcher.match(TEST_WEATHER_WITH_LOCATION_DIR));
+        assertEquals("Error: The CODE_WEATHER_WITH_LOCATION_AND_DATE URI was matched incorrectly.",
+                WeatherProvider.CODE_WEATHER_WITH_LOCATION_AND_DATE,
+                testMatcher.match(TEST_WEATHER_WITH_LOCATION_AND_DATE_DIR));
+        assertEquals("Error: The CODE_LOCATION URI was matched incorrectly.",
+                WeatherProvider.CODE_LOCATION,
+                testMatcher.match(WeatherContract.LocationEntry.CONTENT_URI));
     }
 }
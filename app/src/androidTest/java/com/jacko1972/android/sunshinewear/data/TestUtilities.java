@@ -18,6 +18,7 @@ package com.jacko1972.android.sunshinewear.data;
 import android.content.ContentValues;
 import android.database.ContentObserver;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.HandlerThread;
@@ -35,6 +36,7 @@ import java.util.regex.Pattern;
 import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry.COLUMN_DATE;
 import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry.COLUMN_DEGREES;
 import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry.COLUMN_HUMIDITY;
+import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry.COLUMN_LOC_KEY;
 import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry.COLUMN_MAX_TEMP;
 import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry.COLUMN_MIN_TEMP;
 import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry.COLUMN_PRESSURE;
@@ -59,6 +61,10 @@ class TestUtilities {
 
     static final int BULK_INSERT_RECORDS_TO_INSERT = 10;
 
+    /* The location all of the test weather belongs to, stored by insertTestLocation */
+    static final long TEST_LOCATION_ID = 1;
+    static final String TEST_LOCATION_SETTING = "99705";
+
     /**
      * Ensures there is a non empty cursor and validates the cursor's data by checking it against
      * a set of expected values. This method will then close the cursor.
@@ -110,6 +116,23 @@ class TestUtilities {
         }
     }
 
+    /**
+     * Stores the location the test weather belongs to, under TEST_LOCATION_ID. Any weather
+     * inserted using the other helpers of this class refers to that location.
+     *
+     * @param database The database to insert the location into
+     */
+    static void insertTestLocation(SQLiteDatabase database) {
+        ContentValues testLocationValues = new ContentValues();
+        testLocationValues.put(WeatherContract.LocationEntry._ID, TEST_LOCATION_ID);
+        testLocationValues.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
+                TEST_LOCATION_SETTING);
+        testLocationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT, 64.7488);
+        testLocationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, -147.353);
+
+        database.insertOrThrow(WeatherContract.LocationEntry.TABLE_NAME, null, testLocationValues);
+    }
+
     /**
      * Used as a convenience method to return a singleton instance of ContentValues to populate
      * our database or insert using our ContentProvider.
@@ -128,6 +151,7 @@ class TestUtilities {
         testWeatherValues.put(COLUMN_MIN_TEMP, 65);
         testWeatherValues.put(COLUMN_WIND_SPEED, 5.5);
         testWeatherValues.put(COLUMN_WEATHER_ID, 321);
+        testWeatherValues.put(COLUMN_LOC_KEY, TEST_LOCATION_ID);
 
         return testWeatherValues;
     }
@@ -165,6 +189,7 @@ class TestUtilities {
             weatherValues.put(COLUMN_MIN_TEMP, 65 - i);
             weatherValues.put(COLUMN_WIND_SPEED, 5.5 + 0.2 * (float) i);
             weatherValues.put(COLUMN_WEATHER_ID, 321);
+            weatherValues.put(COLUMN_LOC_KEY, TEST_LOCATION_ID);
 
             bulkTestWeatherValues[i] = weatherValues;
         }
@@ -24,9 +24,12 @@ import android.content.pm.ProviderInfo;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
+import android.os.Bundle;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 
+import com.jacko1972.android.sunshinewear.utilities.SunshineDateUtils;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -74,11 +77,17 @@ public class TestWeatherProvider {
     /**
      * Because we annotate this method with the @Before annotation, this method will be called
      * before every single method with an @Test annotation. We want to start each test clean, so we
-     * delete all entries in the weather table to do so.
+     * delete all entries in the weather and location tables to do so, and then store the location
+     * our test weather belongs to.
      */
     @Before
     public void setUp() {
         deleteAllRecordsFromWeatherTable();
+
+        WeatherDbHelper helper = new WeatherDbHelper(mContext);
+        SQLiteDatabase database = helper.getWritableDatabase();
+        TestUtilities.insertTestLocation(database);
+        database.close();
     }
 
     /**
@@ -207,6 +216,60 @@ public class TestWeatherProvider {
                 testWeatherValues);
     }
 
+    /**
+     * This test stores the same day of weather for two locations, and checks that querying the
+     * weather of one location doesn't return the weather of the other.
+     * <p>
+     * Potential causes for failure:
+     * <p>
+     *   1) The UNIQUE constraint of the weather table doesn't include the location, so the second
+     *    location's day replaced the first one
+     * <p>
+     *   2) The location-scoped URI isn't restricted to its location
+     */
+    @Test
+    public void testWeatherWithLocationQuery() {
+
+        WeatherDbHelper dbHelper = new WeatherDbHelper(mContext);
+        SQLiteDatabase database = dbHelper.getWritableDatabase();
+
+        ContentValues otherLocationValues = new ContentValues();
+        otherLocationValues.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, "94043");
+        otherLocationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT, 37.4056);
+        otherLocationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, -122.0775);
+        long otherLocationId = database.insert(
+                WeatherContract.LocationEntry.TABLE_NAME,
+                null,
+                otherLocationValues);
+        assertTrue("Unable to insert a location into the database", otherLocationId != -1);
+
+        ContentValues testWeatherValues = TestUtilities.createTestWeatherContentValues();
+        ContentValues otherWeatherValues = new ContentValues(testWeatherValues);
+        otherWeatherValues.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, otherLocationId);
+        otherWeatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, 99);
+
+        assertTrue("Unable to insert into the database", database.insert(
+                WeatherContract.WeatherEntry.TABLE_NAME, null, testWeatherValues) != -1);
+        assertTrue("Unable to insert into the database", database.insert(
+                WeatherContract.WeatherEntry.TABLE_NAME, null, otherWeatherValues) != -1);
+
+        database.close();
+
+        Cursor weatherCursor = mContext.getContentResolver().query(
+                WeatherContract.WeatherEntry.buildWeatherUriWithLocationAndDate(
+                        TestUtilities.TEST_LOCATION_SETTING, TestUtilities.DATE_NORMALIZED),
+                null,
+                null,
+                null,
+                null);
+
+        assertNotNull("Cursor was null.", weatherCursor);
+        assertEquals("Weather of another location was returned", 1, weatherCursor.getCount());
+        TestUtilities.validateThenCloseCursor("testWeatherWithLocationQuery",
+                weatherCursor,
+                testWeatherValues);
+    }
+
     /**
      * This test test the bulkInsert feature of the ContentProvider. It also verifies that
      * registered ContentObservers receive onChange callbacks when data is inserted.
@@ -326,6 +389,36 @@ public class TestWeatherProvider {
         cursor.close();
     }
 
+    /**
+     * Every row of weather belongs to a location, so a bulk insert of rows that don't say which
+     * one must fail loudly rather than silently insert nothing.
+     */
+    @Test
+    public void testBulkInsertWithoutLocationFails() {
+        ContentValues[] bulkInsertTestContentValues = createBulkInsertTestWeatherValues();
+        bulkInsertTestContentValues[0].remove(WeatherContract.WeatherEntry.COLUMN_LOC_KEY);
+
+        try {
+            mContext.getContentResolver().bulkInsert(
+                    WeatherContract.WeatherEntry.CONTENT_URI,
+                    bulkInsertTestContentValues);
+            fail("Bulk insert of weather without a location should have thrown");
+        } catch (IllegalArgumentException e) {
+            /* Expected */
+        }
+
+        /* The insert is one transaction, so none of the other rows should have been stored */
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherContract.WeatherEntry.CONTENT_URI,
+                null,
+                null,
+                null,
+                null);
+        assertNotNull(cursor);
+        assertEquals(0, cursor.getCount());
+        cursor.close();
+    }
+
     /**
      * This test deletes all records from the weather table using the ContentProvider. It also
      * verifies that registered ContentObservers receive onChange callbacks when data is deleted.
@@ -423,6 +516,88 @@ public class TestWeatherProvider {
         shouldBeEmptyCursor.close();
     }
 
+    /**
+     * This test replaces a stored forecast using the sync method of the ContentProvider. Only the
+     * days that differ between the stored and the new forecast should be written, days missing
+     * from the new forecast should be removed, and the table should end up holding exactly the
+     * new forecast.
+     * <p>
+     * Potential causes for failure:
+     * <p>
+     *   1) Unchanged days were rewritten, so the reported number of changed rows is too high
+     * <p>
+     *   2) Days missing from the new forecast were left in the table
+     */
+    @Test
+    public void testSyncWeatherOnlyWritesChangedDays() {
+
+        /* Start out with the full set of test data stored */
+        testBulkInsert();
+
+        /*
+         * The new forecast drops the first stored day (as if it were now in the past), changes
+         * the high temperature of the second day and adds a day at the end.
+         */
+        ContentValues[] storedValues = createBulkInsertTestWeatherValues();
+        ContentValues[] newValues = new ContentValues[BULK_INSERT_RECORDS_TO_INSERT];
+        System.arraycopy(storedValues, 1, newValues, 0, BULK_INSERT_RECORDS_TO_INSERT - 1);
+
+        newValues[0] = new ContentValues(newValues[0]);
+        newValues[0].put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, 99);
+
+        ContentValues addedDay = new ContentValues(storedValues[BULK_INSERT_RECORDS_TO_INSERT - 1]);
+        addedDay.put(WeatherContract.WeatherEntry.COLUMN_DATE,
+                addedDay.getAsLong(WeatherContract.WeatherEntry.COLUMN_DATE)
+                        + SunshineDateUtils.DAY_IN_MILLIS);
+        newValues[BULK_INSERT_RECORDS_TO_INSERT - 1] = addedDay;
+
+        ForecastBatch forecast = new ForecastBatch(newValues.length);
+        for (ContentValues day : newValues) {
+            forecast.add(day.getAsLong(WeatherContract.WeatherEntry.COLUMN_DATE),
+                    day.getAsInteger(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID),
+                    day.getAsDouble(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP),
+                    day.getAsDouble(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP),
+                    day.getAsDouble(WeatherContract.WeatherEntry.COLUMN_HUMIDITY),
+                    day.getAsDouble(WeatherContract.WeatherEntry.COLUMN_PRESSURE),
+                    day.getAsDouble(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED),
+                    day.getAsDouble(WeatherContract.WeatherEntry.COLUMN_DEGREES));
+        }
+
+        Bundle extras = new Bundle();
+        forecast.writeToBundle(extras);
+        Bundle result = mContext.getContentResolver().call(
+                WeatherContract.WeatherEntry.CONTENT_URI,
+                WeatherContract.WeatherEntry.METHOD_SYNC_WEATHER,
+                TestUtilities.TEST_LOCATION_SETTING,
+                extras);
+
+        /* One deleted day, one updated day and one inserted day */
+        assertNotNull("Sync method returned no result", result);
+        assertEquals("Unexpected number of rows changed by sync",
+                3,
+                result.getInt(WeatherContract.WeatherEntry.EXTRA_ROWS_CHANGED));
+
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherContract.WeatherEntry.CONTENT_URI,
+                null,
+                null,
+                null,
+                WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+
+        assertNotNull("Cursor was null.", cursor);
+        assertEquals(BULK_INSERT_RECORDS_TO_INSERT, cursor.getCount());
+
+        cursor.moveToFirst();
+        for (int i = 0; i < BULK_INSERT_RECORDS_TO_INSERT; i++, cursor.moveToNext()) {
+            TestUtilities.validateCurrentRecord(
+                    "testSyncWeatherOnlyWritesChangedDays. Error validating WeatherEntry " + i,
+                    cursor,
+                    newValues[i]);
+        }
+
+        cursor.close();
+    }
+
     /**
      * This method will clear all rows from the weather table in our database.
      * <p>
@@ -442,6 +617,7 @@ public class TestWeatherProvider {
 
         /* The delete method deletes all of the desired rows from the table, not the table itself */
         database.delete(WeatherContract.WeatherEntry.TABLE_NAME, null, null);
+        database.delete(WeatherContract.LocationEntry.TABLE_NAME, null, null);
 
         /* Always close the database when you're through with it */
         database.close();
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear.sync;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Checks the rules of AdaptiveSyncPolicy, and replays a week of made up events against it to see
+ * how many times it fetches the forecast compared to the fixed 3 hour interval we used to have.
+ * The fetch counts of each scenario are written to logcat under the "AdaptiveSyncPolicy" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestAdaptiveSyncPolicy {
+
+    private static final String TAG = "AdaptiveSyncPolicy";
+
+    /* Any point in time will do, as long as it isn't 0, which means "no activity seen" */
+    private static final long START_MILLIS = TimeUnit.DAYS.toMillis(17000);
+
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final long WEEK_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private static final long FIXED_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(3);
+
+    @Test
+    public void testUnchangedForecastWidensInterval() {
+        AdaptiveSyncPolicy policy = AdaptiveSyncPolicy.createDefault();
+        assertEquals(AdaptiveSyncPolicy.BASE_INTERVAL_SECONDS, policy.getIntervalSeconds(START_MILLIS));
+
+        policy.onSyncFinished(SunshineSyncCoordinator.Outcome.UNCHANGED);
+        assertEquals(AdaptiveSyncPolicy.BASE_INTERVAL_SECONDS * 2,
+                policy.getIntervalSeconds(START_MILLIS));
+
+        for (int i = 0; i < 10; i++) {
+            policy.onSyncFinished(SunshineSyncCoordinator.Outcome.UNCHANGED);
+        }
+        assertEquals(AdaptiveSyncPolicy.MAX_INTERVAL_SECONDS, policy.getIntervalSeconds(START_MILLIS));
+
+        policy.onSyncFinished(SunshineSyncCoordinator.Outcome.FAILED);
+        assertEquals(AdaptiveSyncPolicy.MAX_INTERVAL_SECONDS, policy.getIntervalSeconds(START_MILLIS));
+
+        policy.onSyncFinished(SunshineSyncCoordinator.Outcome.UPDATED);
+        assertEquals(AdaptiveSyncPolicy.BASE_INTERVAL_SECONDS, policy.getIntervalSeconds(START_MILLIS));
+    }
+
+    @Test
+    public void testUserActivityNarrowsThenIdleWidensInterval() {
+        AdaptiveSyncPolicy policy = AdaptiveSyncPolicy.createDefault();
+        policy.onUserActivity(START_MILLIS);
+
+        assertEquals(AdaptiveSyncPolicy.MIN_INTERVAL_SECONDS,
+                policy.getIntervalSeconds(START_MILLIS + HOUR_MILLIS));
+        assertEquals(AdaptiveSyncPolicy.BASE_INTERVAL_SECONDS,
+                policy.getIntervalSeconds(START_MILLIS + AdaptiveSyncPolicy.ACTIVE_WINDOW_MILLIS));
+        assertEquals(AdaptiveSyncPolicy.MAX_INTERVAL_SECONDS,
+                policy.getIntervalSeconds(START_MILLIS + AdaptiveSyncPolicy.IDLE_AFTER_MILLIS));
+    }
+
+    @Test
+    public void testStateSurvivesRestore() {
+        AdaptiveSyncPolicy policy = AdaptiveSyncPolicy.createDefault();
+        policy.onSyncFinished(SunshineSyncCoordinator.Outcome.UNCHANGED);
+        policy.onUserActivity(START_MILLIS);
+
+        AdaptiveSyncPolicy restored = new AdaptiveSyncPolicy(
+                policy.getBackoffIntervalSeconds(),
+                policy.getLastUserActivityMillis());
+
+        long later = START_MILLIS + AdaptiveSyncPolicy.ACTIVE_WINDOW_MILLIS;
+        assertEquals(policy.getIntervalSeconds(later), restored.getIntervalSeconds(later));
+    }
+
+    /**
+     * The app is opened once when it is installed and then left alone for the rest of the week,
+     * while the forecast changes every 3 hours.
+     */
+    @Test
+    public void simulateIdleWeek() {
+        long[] activity = {START_MILLIS};
+        int fetches = simulateWeek(activity, 3 * HOUR_MILLIS);
+        int fixedFetches = fixedIntervalFetches(activity);
+
+        report("Idle week", fetches, fixedFetches);
+        assertTrue(fetches < fixedFetches / 2);
+    }
+
+    /**
+     * The app is opened every morning and evening, and the forecast only changes once a day.
+     */
+    @Test
+    public void simulateStableForecastWeek() {
+        long[] activity = dailyActivity(8, 18);
+        int fetches = simulateWeek(activity, DAY_MILLIS);
+        int fixedFetches = fixedIntervalFetches(activity);
+
+        report("Stable forecast week", fetches, fixedFetches);
+        assertTrue(fetches < fixedFetches);
+    }
+
+    /**
+     * The app is opened every few hours during the day, while the forecast changes every 3 hours.
+     * Syncing more often around the times it is used is what we want here, so this only checks
+     * that the policy doesn't get out of hand.
+     */
+    @Test
+    public void simulateBusyWeek() {
+        long[] activity = dailyActivity(7, 10, 13, 16, 19, 22);
+        int fetches = simulateWeek(activity, 3 * HOUR_MILLIS);
+        int fixedFetches = fixedIntervalFetches(activity);
+
+        report("Busy week", fetches, fixedFetches);
+        assertTrue(fetches < fixedFetches * 2);
+    }
+
+    /**
+     * Replays a week against a fresh policy. Every user activity is the app being opened, which
+     * syncs right away as MainActivity does. The sync job runs at the interval the policy asked
+     * for, and is scheduled again whenever that interval changes, as SunshineSyncUtils does.
+     *
+     * @param activityMillis      When the app is opened, in order
+     * @param forecastUpdateMillis How often the server's forecast changes
+     * @return How many times the forecast was fetched
+     */
+    private static int simulateWeek(long[] activityMillis, long forecastUpdateMillis) {
+        AdaptiveSyncPolicy policy = AdaptiveSyncPolicy.createDefault();
+        long end = START_MILLIS + WEEK_MILLIS;
+
+        long scheduledInterval = policy.getIntervalSeconds(START_MILLIS) * 1000;
+        long nextSync = START_MILLIS + scheduledInterval;
+        long lastFetch = Long.MIN_VALUE;
+        int fetches = 0;
+        int nextActivity = 0;
+
+        while (true) {
+            long activity = nextActivity < activityMillis.length
+                    ? activityMillis[nextActivity] : Long.MAX_VALUE;
+            long now = Math.min(activity, nextSync);
+            if (now >= end) {
+                break;
+            }
+
+            if (activity <= nextSync) {
+                nextActivity++;
+                policy.onUserActivity(now);
+            } else {
+                /* The job recurs at the interval it was scheduled with */
+                nextSync = now + scheduledInterval;
+            }
+
+            boolean forecastChanged = lastFetch == Long.MIN_VALUE
+                    || (now - START_MILLIS) / forecastUpdateMillis
+                    != (lastFetch - START_MILLIS) / forecastUpdateMillis;
+            policy.onSyncFinished(forecastChanged
+                    ? SunshineSyncCoordinator.Outcome.UPDATED
+                    : SunshineSyncCoordinator.Outcome.UNCHANGED);
+            lastFetch = now;
+            fetches++;
+
+            long interval = policy.getIntervalSeconds(now) * 1000;
+            if (interval != scheduledInterval) {
+                scheduledInterval = interval;
+                nextSync = now + interval;
+            }
+        }
+        return fetches;
+    }
+
+    /**
+     * @return How many times the old fixed 3 hour interval, plus a sync every time the app is
+     * opened, fetched the forecast in a week
+     */
+    private static int fixedIntervalFetches(long[] activityMillis) {
+        return (int) (WEEK_MILLIS / FIXED_INTERVAL_MILLIS) + activityMillis.length;
+    }
+
+    /**
+     * @return The app being opened at each of the given hours, every day of the week
+     */
+    private static long[] dailyActivity(int... hours) {
+        List<Long> activity = new ArrayList<>();
+        for (int day = 0; day < 7; day++) {
+            for (int hour : hours) {
+                activity.add(START_MILLIS + day * DAY_MILLIS + hour * HOUR_MILLIS);
+            }
+        }
+        long[] activityMillis = new long[activity.size()];
+        for (int i = 0; i < activityMillis.length; i++) {
+            activityMillis[i] = activity.get(i);
+        }
+        return activityMillis;
+    }
+
+    private static void report(String scenario, int fetches, int fixedFetches) {
+        Log.i(TAG, scenario + ": " + fetches + " fetches, fixed interval " + fixedFetches);
+    }
+}
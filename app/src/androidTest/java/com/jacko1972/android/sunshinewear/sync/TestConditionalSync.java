@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear.sync;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.jacko1972.android.sunshinewear.data.ForecastBatch;
+import com.jacko1972.android.sunshinewear.data.SunshinePreferences;
+import com.jacko1972.android.sunshinewear.data.WeatherContract;
+import com.jacko1972.android.sunshinewear.utilities.NetworkUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+/**
+ * Checks that the conditional requests of a sync still end with weather stored when a location
+ * has been removed and added back. The sync talks to a local server which, like the real one,
+ * answers 304 Not Modified whenever it is sent the ETag of its forecast.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestConditionalSync {
+
+    /* A location that is never the preferred one, so it is fetched by name */
+    private static final String TEST_LOCATION = "conditional_sync_test_location";
+    private static final String OTHER_LOCATION = "conditional_sync_other_location";
+
+    private static final String FORECAST_ETAG = "\"forecast-v1\"";
+    private static final int FORECAST_DAYS = 3;
+
+    private static final String FORECAST_JSON = "{\"cod\":200,"
+            + "\"city\":{\"coord\":{\"lat\":37.4,\"lon\":-122.1}},"
+            + "\"list\":["
+            + "{\"pressure\":1013.5,\"humidity\":60,\"speed\":2.5,\"deg\":180,"
+            + "\"temp\":{\"min\":10.0,\"max\":20.0},\"weather\":[{\"id\":800}]},"
+            + "{\"pressure\":1010.0,\"humidity\":70,\"speed\":4.0,\"deg\":90,"
+            + "\"temp\":{\"min\":11.0,\"max\":19.0},\"weather\":[{\"id\":500}]},"
+            + "{\"pressure\":1008.2,\"humidity\":80,\"speed\":6.1,\"deg\":270,"
+            + "\"temp\":{\"min\":9.0,\"max\":15.0},\"weather\":[{\"id\":211}]}"
+            + "]}";
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    private ForecastServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        deleteAllLocations();
+        mServer = new ForecastServer();
+        NetworkUtils.setForecastBaseUrl(mServer.getBaseUrl());
+        SunshinePreferences.resetResponseValidators(mContext);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        NetworkUtils.setForecastBaseUrl(null);
+        mServer.close();
+        deleteAllLocations();
+        SunshinePreferences.resetResponseValidators(mContext);
+    }
+
+    /**
+     * Syncs a location, removes it, adds it back and syncs it again. The validators of the first
+     * sync must not get the weather that was deleted in between reported as unchanged.
+     */
+    @Test
+    public void testRemovedLocationIsRestoredBySync() throws IOException {
+        String url = NetworkUtils.getUrl(mContext, TEST_LOCATION).toString();
+
+        ForecastBatch forecast = syncTestLocation();
+        assertNotSame("First sync should have downloaded the forecast",
+                SunshineSyncTask.NOT_MODIFIED, forecast);
+        assertEquals(FORECAST_DAYS, countStoredDays());
+        assertNotNull("Validators should be saved once the forecast is stored",
+                SunshinePreferences.getResponseValidators(mContext, url));
+
+        /* With the forecast stored, the server confirms it is current */
+        assertSame(SunshineSyncTask.NOT_MODIFIED, syncTestLocation());
+        assertEquals(FORECAST_DAYS, countStoredDays());
+
+        /* The user stops tracking the location, which is deleted by the next sync */
+        SunshineSyncTask.deleteUntrackedLocations(mContext, new String[]{OTHER_LOCATION});
+        assertEquals(0, countStoredDays());
+        assertNull("Validators of a deleted location should be forgotten",
+                SunshinePreferences.getResponseValidators(mContext, url));
+
+        /* The user adds the location back on the same day */
+        forecast = syncTestLocation();
+        assertNotSame("Sync of a re-added location should download the forecast",
+                SunshineSyncTask.NOT_MODIFIED, forecast);
+        assertEquals(FORECAST_DAYS, countStoredDays());
+    }
+
+    /**
+     * Even when validators for today are still saved, they must not be sent for a location
+     * whose weather isn't stored, or the 304 they get back would leave it without any.
+     */
+    @Test
+    public void testSavedValidatorsWithoutStoredWeather() throws IOException {
+        String url = NetworkUtils.getUrl(mContext, TEST_LOCATION).toString();
+
+        assertNotSame(SunshineSyncTask.NOT_MODIFIED, syncTestLocation());
+        SunshineSyncTask.deleteUntrackedLocations(mContext, new String[]{OTHER_LOCATION});
+        assertEquals(0, countStoredDays());
+
+        /* As if the rows had gone some other way, say by a database upgrade */
+        SunshinePreferences.saveResponseValidators(mContext, url, FORECAST_ETAG, null);
+
+        ForecastBatch forecast = syncTestLocation();
+        assertNotSame("Saved validators shouldn't be sent without stored weather",
+                SunshineSyncTask.NOT_MODIFIED, forecast);
+        assertEquals(FORECAST_DAYS, countStoredDays());
+    }
+
+    private ForecastBatch syncTestLocation() throws IOException {
+        return SunshineSyncTask.syncLocation(mContext, TEST_LOCATION, false,
+                SyncTelemetry.begin());
+    }
+
+    private int countStoredDays() {
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherContract.WeatherEntry.buildWeatherUriWithLocation(TEST_LOCATION),
+                null,
+                null,
+                null,
+                null);
+        assertNotNull(cursor);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void deleteAllLocations() {
+        mContext.getContentResolver().delete(
+                WeatherContract.LocationEntry.CONTENT_URI,
+                null,
+                null);
+    }
+
+    /**
+     * Answers forecast requests on a local port, one connection at a time, until closed. A
+     * request that carries the forecast's ETag gets 304 Not Modified, any other gets the
+     * forecast.
+     */
+    private static class ForecastServer implements Runnable {
+
+        private final ServerSocket mServerSocket;
+
+        ForecastServer() throws IOException {
+            mServerSocket = new ServerSocket(0, 0, InetAddress.getByName("127.0.0.1"));
+            new Thread(this, "ForecastServer").start();
+        }
+
+        String getBaseUrl() {
+            return "http://127.0.0.1:" + mServerSocket.getLocalPort() + "/weather";
+        }
+
+        void close() throws IOException {
+            mServerSocket.close();
+        }
+
+        @Override
+        public void run() {
+            while (!mServerSocket.isClosed()) {
+                try {
+                    Socket socket = mServerSocket.accept();
+                    try {
+                        answer(socket);
+                    } finally {
+                        socket.close();
+                    }
+                } catch (IOException e) {
+                    /* Closed by the test, or a request we can't answer */
+                }
+            }
+        }
+
+        private static void answer(Socket socket) throws IOException {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), "UTF-8"));
+
+            boolean validated = false;
+            String line;
+            while ((line = reader.readLine()) != null && line.length() > 0) {
+                int colon = line.indexOf(':');
+                if (colon > 0
+                        && line.substring(0, colon).trim().equalsIgnoreCase("If-None-Match")
+                        && line.substring(colon + 1).trim().equals(FORECAST_ETAG)) {
+                    validated = true;
+                }
+            }
+
+            String response;
+            if (validated) {
+                response = "HTTP/1.1 304 Not Modified\r\n"
+                        + "ETag: " + FORECAST_ETAG + "\r\n"
+                        + "Connection: close\r\n"
+                        + "\r\n";
+            } else {
+                byte[] body = FORECAST_JSON.getBytes("UTF-8");
+                response = "HTTP/1.1 200 OK\r\n"
+                        + "Content-Type: application/json; charset=utf-8\r\n"
+                        + "Content-Length: " + body.length + "\r\n"
+                        + "ETag: " + FORECAST_ETAG + "\r\n"
+                        + "Connection: close\r\n"
+                        + "\r\n"
+                        + FORECAST_JSON;
+            }
+
+            OutputStream out = socket.getOutputStream();
+            out.write(response.getBytes("UTF-8"));
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear.sync;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Checks that SyncTelemetry adds up what a sync reports, and only keeps the most recent syncs.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestSyncTelemetry {
+
+    @Before
+    public void clearRecords() {
+        SyncTelemetry.clear();
+    }
+
+    @Test
+    public void testRecordAddsUpCounters() {
+        SyncTelemetry.Record record = SyncTelemetry.begin();
+        record.addBytesDownloaded(1000);
+        record.addBytesDownloaded(500);
+        record.addRowsWritten(14);
+        record.addRowsWritten(14);
+        record.addCacheHit();
+        record.addFailure("london", new IOException("timeout"));
+        record.endStage(SyncTelemetry.Stage.FETCH, System.nanoTime() - 5000000L);
+        record.endStage(SyncTelemetry.Stage.FETCH, System.nanoTime() - 5000000L);
+        record.finish(SunshineSyncCoordinator.Outcome.UPDATED);
+
+        assertEquals(1500, record.getBytesDownloaded());
+        assertEquals(28, record.getRowsWritten());
+        assertEquals(1, record.getCacheHits());
+        assertEquals(1, record.getFailures().size());
+        assertTrue(record.getFailures().get(0).startsWith("london: "));
+        assertTrue(record.getStageMillis(SyncTelemetry.Stage.FETCH) >= 10);
+        assertEquals(0, record.getStageMillis(SyncTelemetry.Stage.STORE));
+        assertEquals(SunshineSyncCoordinator.Outcome.UPDATED, record.getOutcome());
+
+        List<SyncTelemetry.Record> records = SyncTelemetry.getRecords();
+        assertEquals(1, records.size());
+        assertSame(record, records.get(0));
+    }
+
+    @Test
+    public void testBufferKeepsMostRecentSyncs() {
+        SyncTelemetry.Record[] added = new SyncTelemetry.Record[SyncTelemetry.CAPACITY + 5];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = SyncTelemetry.begin();
+            added[i].addRowsWritten(i);
+            added[i].finish(SunshineSyncCoordinator.Outcome.UNCHANGED);
+        }
+
+        List<SyncTelemetry.Record> records = SyncTelemetry.getRecords();
+        assertEquals(SyncTelemetry.CAPACITY, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertSame(added[added.length - SyncTelemetry.CAPACITY + i], records.get(i));
+        }
+    }
+
+    @Test
+    public void testDumpWritesEveryRecord() {
+        SyncTelemetry.Record record = SyncTelemetry.begin();
+        record.addBytesDownloaded(2048);
+        record.finish(SunshineSyncCoordinator.Outcome.FAILED);
+
+        StringWriter dump = new StringWriter();
+        SyncTelemetry.dump(new PrintWriter(dump));
+
+        String text = dump.toString();
+        assertTrue(text, text.contains("last 1 syncs"));
+        assertTrue(text, text.contains("FAILED"));
+        assertTrue(text, text.contains("2048 bytes"));
+    }
+}
@@ -16,8 +16,11 @@
 package com.jacko1972.android.sunshinewear;
 
 import android.content.Context;
-import android.database.Cursor;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -25,12 +28,11 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import com.jacko1972.android.sunshinewear.utilities.SunshineDateUtils;
-import com.jacko1972.android.sunshinewear.utilities.SunshineWeatherUtils;
+import java.util.List;
 
 /**
- * {@link ForecastAdapter} exposes a list of weather forecasts
- * from a {@link android.database.Cursor} to a {@link android.support.v7.widget.RecyclerView}.
+ * {@link ForecastAdapter} exposes a list of weather forecasts, prepared as {@link ForecastRow}s
+ * by {@link ForecastRowLoader}, to a {@link android.support.v7.widget.RecyclerView}.
  */
 class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapterViewHolder> {
 
@@ -63,7 +65,13 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
      */
     private boolean mUseTodayLayout;
 
-    private Cursor mCursor;
+    private List<ForecastRow> mRows;
+
+    /* Counts calls to swapRows, so a diff that has been overtaken by a newer one is dropped */
+    private int mSwapGeneration;
+
+    /* Diffs are computed in the background, and handed back to the main thread through this */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
 
     /**
      * Creates a ForecastAdapter.
@@ -129,12 +137,15 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
      */
     @Override
     public void onBindViewHolder(ForecastAdapterViewHolder forecastAdapterViewHolder, int position) {
-        mCursor.moveToPosition(position);
+        /*
+         * Everything shown was formatted when the row was loaded, so all that is left to do here
+         * is hand the prepared values to the views.
+         */
+        ForecastRow row = mRows.get(position);
 
         /****************
          * Weather Icon *
          ****************/
-        int weatherId = mCursor.getInt(MainActivity.INDEX_WEATHER_CONDITION_ID);
         int weatherImageId;
 
         int viewType = getItemViewType(position);
@@ -142,13 +153,11 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
         switch (viewType) {
 
             case VIEW_TYPE_TODAY:
-                weatherImageId = SunshineWeatherUtils
-                        .getLargeArtResourceIdForWeatherCondition(weatherId);
+                weatherImageId = row.largeArtResourceId;
                 break;
 
             case VIEW_TYPE_FUTURE_DAY:
-                weatherImageId = SunshineWeatherUtils
-                        .getSmallArtResourceIdForWeatherCondition(weatherId);
+                weatherImageId = row.smallArtResourceId;
                 break;
 
             default:
@@ -160,59 +169,26 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
         /****************
          * Weather Date *
          ****************/
-         /* Read date from the cursor */
-        long dateInMillis = mCursor.getLong(MainActivity.INDEX_WEATHER_DATE);
-         /* Get human readable string using our utility method */
-        String dateString = SunshineDateUtils.getFriendlyDateString(mContext, dateInMillis, false);
-
-         /* Display friendly date string */
-        forecastAdapterViewHolder.dateView.setText(dateString);
+        forecastAdapterViewHolder.dateView.setText(row.dateString);
 
         /***********************
          * Weather Description *
          ***********************/
-        String description = SunshineWeatherUtils.getStringForWeatherCondition(mContext, weatherId);
-         /* Create the accessibility (a11y) String from the weather description */
-        String descriptionA11y = mContext.getString(R.string.a11y_forecast, description);
-
          /* Set the text and content description (for accessibility purposes) */
-        forecastAdapterViewHolder.descriptionView.setText(description);
-        forecastAdapterViewHolder.descriptionView.setContentDescription(descriptionA11y);
+        forecastAdapterViewHolder.descriptionView.setText(row.description);
+        forecastAdapterViewHolder.descriptionView.setContentDescription(row.descriptionA11y);
 
         /**************************
          * High (max) temperature *
          **************************/
-         /* Read high temperature from the cursor (in degrees celsius) */
-        double highInCelsius = mCursor.getDouble(MainActivity.INDEX_WEATHER_MAX_TEMP);
-         /*
-          * If the user's preference for weather is fahrenheit, formatTemperature will convert
-          * the temperature. This method will also append either °C or °F to the temperature
-          * String.
-          */
-        String highString = SunshineWeatherUtils.formatTemperature(mContext, highInCelsius);
-         /* Create the accessibility (a11y) String from the weather description */
-        String highA11y = mContext.getString(R.string.a11y_high_temp, highString);
-
-         /* Set the text and content description (for accessibility purposes) */
-        forecastAdapterViewHolder.highTempView.setText(highString);
-        forecastAdapterViewHolder.highTempView.setContentDescription(highA11y);
+        forecastAdapterViewHolder.highTempView.setText(row.highString);
+        forecastAdapterViewHolder.highTempView.setContentDescription(row.highA11y);
 
         /*************************
          * Low (min) temperature *
          *************************/
-         /* Read low temperature from the cursor (in degrees celsius) */
-        double lowInCelsius = mCursor.getDouble(MainActivity.INDEX_WEATHER_MIN_TEMP);
-         /*
-          * If the user's preference for weather is fahrenheit, formatTemperature will convert
-          * the temperature. This method will also append either °C or °F to the temperature
-          * String.
-          */
-        String lowString = SunshineWeatherUtils.formatTemperature(mContext, lowInCelsius);
-        String lowA11y = mContext.getString(R.string.a11y_low_temp, lowString);
-
-         /* Set the text and content description (for accessibility purposes) */
-        forecastAdapterViewHolder.lowTempView.setText(lowString);
-        forecastAdapterViewHolder.lowTempView.setContentDescription(lowA11y);
+        forecastAdapterViewHolder.lowTempView.setText(row.lowString);
+        forecastAdapterViewHolder.lowTempView.setContentDescription(row.lowA11y);
     }
 
     /**
@@ -223,8 +199,8 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
      */
     @Override
     public int getItemCount() {
-        if (null == mCursor) return 0;
-        return mCursor.getCount();
+        if (null == mRows) return 0;
+        return mRows.size();
     }
 
     /**
@@ -234,7 +210,7 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
      * different layout for the "today" layout. The "today" layout is only shown in portrait mode
      * with the first item in the list.
      *
-     * @param position index within our RecyclerView and Cursor
+     * @param position index within our RecyclerView and rows
      * @return the view type (today or future day)
      */
     @Override
@@ -247,16 +223,86 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
     }
 
     /**
-     * Swaps the cursor used by the ForecastAdapter for its weather data. This method is called by
+     * Swaps the rows used by the ForecastAdapter for its weather data. This method is called by
      * MainActivity after a load has finished, as well as when the Loader responsible for loading
-     * the weather data is reset. When this method is called, we assume we have a completely new
-     * set of data, so we call notifyDataSetChanged to tell the RecyclerView to update.
+     * the weather data is reset.
+     * <p>
+     * When there are rows already, the new rows are compared with them day by day on a
+     * background thread, and only the days that were added, removed or changed are passed on to
+     * the RecyclerView, which animates them. A sync that changes a single day rebinds a single
+     * row. Until the comparison is done, the old rows keep being shown. Otherwise there is
+     * nothing to compare with, so we call notifyDataSetChanged to tell the RecyclerView to update.
      *
-     * @param newCursor the new cursor to use as ForecastAdapter's data source
+     * @param newRows the new rows to use as ForecastAdapter's data source
      */
-    void swapCursor(Cursor newCursor) {
-        mCursor = newCursor;
-        notifyDataSetChanged();
+    void swapRows(final List<ForecastRow> newRows) {
+        final int generation = ++mSwapGeneration;
+        final List<ForecastRow> oldRows = mRows;
+
+        if (oldRows == null || newRows == null) {
+            mRows = newRows;
+            notifyDataSetChanged();
+            return;
+        }
+
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult diff =
+                        DiffUtil.calculateDiff(new RowDiffCallback(oldRows, newRows), false);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mSwapGeneration) {
+                            /* Newer rows were swapped in while we were comparing these */
+                            return;
+                        }
+                        mRows = newRows;
+                        diff.dispatchUpdatesTo(ForecastAdapter.this);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Compares two lists of rows for DiffUtil. Rows are the same day when they have the same
+     * date, as each day appears once and in order. A day has to be rebound when anything it
+     * shows has changed, or when it moves into or out of the first position, which may use the
+     * "today" layout.
+     */
+    private class RowDiffCallback extends DiffUtil.Callback {
+
+        private final List<ForecastRow> mOldRows;
+        private final List<ForecastRow> mNewRows;
+
+        RowDiffCallback(List<ForecastRow> oldRows, List<ForecastRow> newRows) {
+            mOldRows = oldRows;
+            mNewRows = newRows;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldRows.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewRows.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldRows.get(oldItemPosition).date == mNewRows.get(newItemPosition).date;
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            if (mUseTodayLayout && (oldItemPosition == 0) != (newItemPosition == 0)) {
+                return false;
+            }
+            return mOldRows.get(oldItemPosition).hasSameContents(mNewRows.get(newItemPosition));
+        }
     }
 
     /**
@@ -294,9 +340,10 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
         @Override
         public void onClick(View v) {
             int adapterPosition = getAdapterPosition();
-            mCursor.moveToPosition(adapterPosition);
-            long dateInMillis = mCursor.getLong(MainActivity.INDEX_WEATHER_DATE);
-            mClickHandler.onClick(dateInMillis);
+            if (adapterPosition == RecyclerView.NO_POSITION) {
+                return;
+            }
+            mClickHandler.onClick(mRows.get(adapterPosition).date);
         }
     }
 }
\ No newline at end of file
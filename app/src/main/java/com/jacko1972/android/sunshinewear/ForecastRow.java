@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import com.jacko1972.android.sunshinewear.utilities.SunshineDateUtils;
+import com.jacko1972.android.sunshinewear.utilities.SunshineWeatherUtils;
+
+/**
+ * One day of the forecast list, with everything the list shows for it already formatted. Rows
+ * are built by {@link ForecastRowLoader} off the main thread, so binding a row to its views in
+ * {@link ForecastAdapter} is only a matter of assigning the prepared values.
+ */
+final class ForecastRow {
+
+    /* Normalized UTC date of the day, which is also what is passed on when the row is clicked */
+    final long date;
+
+    final int weatherId;
+    final double highInCelsius;
+    final double lowInCelsius;
+
+    /* The art for the "today" layout and for the "future day" layout */
+    final int largeArtResourceId;
+    final int smallArtResourceId;
+
+    final String dateString;
+    final String description;
+    final String descriptionA11y;
+    final String highString;
+    final String highA11y;
+    final String lowString;
+    final String lowA11y;
+
+    private ForecastRow(Context context, long date, int weatherId, double highInCelsius,
+                        double lowInCelsius) {
+        this.date = date;
+        this.weatherId = weatherId;
+        this.highInCelsius = highInCelsius;
+        this.lowInCelsius = lowInCelsius;
+
+        largeArtResourceId = SunshineWeatherUtils.getLargeArtResourceIdForWeatherCondition(weatherId);
+        smallArtResourceId = SunshineWeatherUtils.getSmallArtResourceIdForWeatherCondition(weatherId);
+
+        /* Get human readable string using our utility method */
+        dateString = SunshineDateUtils.getFriendlyDateString(context, date, false);
+
+        /* Create the accessibility (a11y) Strings along with the text they describe */
+        description = SunshineWeatherUtils.getStringForWeatherCondition(context, weatherId);
+        descriptionA11y = context.getString(R.string.a11y_forecast, description);
+
+        /*
+         * If the user's preference for weather is fahrenheit, formatTemperature will convert
+         * the temperature. This method will also append either °C or °F to the temperature
+         * String.
+         */
+        highString = SunshineWeatherUtils.formatTemperature(context, highInCelsius);
+        highA11y = context.getString(R.string.a11y_high_temp, highString);
+        lowString = SunshineWeatherUtils.formatTemperature(context, lowInCelsius);
+        lowA11y = context.getString(R.string.a11y_low_temp, lowString);
+    }
+
+    /**
+     * Builds a row from the current position of a cursor queried with
+     * {@link MainActivity#MAIN_FORECAST_PROJECTION}.
+     *
+     * @param context Used to format the row in the user's units and language
+     * @param cursor  Positioned at the day to build the row for
+     * @return The row
+     */
+    static ForecastRow fromCursor(Context context, Cursor cursor) {
+        return new ForecastRow(context,
+                cursor.getLong(MainActivity.INDEX_WEATHER_DATE),
+                cursor.getInt(MainActivity.INDEX_WEATHER_CONDITION_ID),
+                cursor.getDouble(MainActivity.INDEX_WEATHER_MAX_TEMP),
+                cursor.getDouble(MainActivity.INDEX_WEATHER_MIN_TEMP));
+    }
+
+    /**
+     * @param other A row for the same day
+     * @return Whether the two rows show exactly the same thing
+     */
+    boolean hasSameContents(ForecastRow other) {
+        return largeArtResourceId == other.largeArtResourceId
+                && smallArtResourceId == other.smallArtResourceId
+                && dateString.equals(other.dateString)
+                && description.equals(other.description)
+                && highString.equals(other.highString)
+                && lowString.equals(other.lowString);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.v4.content.AsyncTaskLoader;
+
+import com.jacko1972.android.sunshinewear.data.WeatherContract;
+import com.jacko1972.android.sunshinewear.utilities.SunshineDateUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Loads the forecast of a location and turns it into a list of {@link ForecastRow}s, on the
+ * loader's background thread. Like a CursorLoader, it loads again whenever the weather data
+ * changes, which includes the user switching units, as SettingsFragment tells the provider's
+ * observers about that too.
+ * <p>
+ * The rows are formatted for the day, Locale and time zone they were loaded in, so the loader
+ * also loads again when any of those change: right away if it is started, otherwise as soon as
+ * it is started again, which is also when an Activity recreated for a new Locale gets it back.
+ * <p>
+ * The cursor is closed as soon as the rows are built, so nothing the list shows depends on the
+ * database once the load is delivered.
+ */
+class ForecastRowLoader extends AsyncTaskLoader<List<ForecastRow>> {
+
+    private final Uri mForecastUri;
+
+    /* Reloads when the provider reports the weather data has changed */
+    private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver();
+    private boolean mObserverRegistered;
+
+    /* Reloads when the date, Locale or time zone changes, registered along with mObserver */
+    private final BroadcastReceiver mFormatChangeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            onContentChanged();
+        }
+    };
+
+    /* The format key of the load in progress, set on the loader's thread */
+    private volatile String mLoadingFormatKey;
+
+    /* The format key the rows in mRows were formatted with */
+    private String mRowsFormatKey;
+
+    /* The last rows delivered, so they can be delivered again when the loader is restarted */
+    private List<ForecastRow> mRows;
+
+    /**
+     * @param context         Used to query the provider and format the rows, only its
+     *                        application Context is kept
+     * @param locationSetting The location to load the forecast of
+     */
+    ForecastRowLoader(Context context, String locationSetting) {
+        super(context);
+        mForecastUri = WeatherContract.WeatherEntry.buildWeatherUriWithLocation(locationSetting);
+    }
+
+    /**
+     * @return What the formatted rows depend on besides the weather data: today's date, the
+     * Locale and the time zone
+     */
+    private static String getFormatKey() {
+        return (System.currentTimeMillis() / SunshineDateUtils.DAY_IN_MILLIS)
+                + "|" + Locale.getDefault()
+                + "|" + TimeZone.getDefault().getID();
+    }
+
+    @Override
+    public List<ForecastRow> loadInBackground() {
+        mLoadingFormatKey = getFormatKey();
+
+        /* Sort order: Ascending by date */
+        String sortOrder = WeatherContract.WeatherEntry.COLUMN_DATE + " ASC";
+        /*
+         * A SELECTION in SQL declares which rows you'd like to return. In our case, we
+         * want all weather data from today onwards that is stored in our weather table.
+         * We created a handy method to do that in our WeatherEntry class.
+         */
+        String selection = WeatherContract.WeatherEntry.getSqlSelectForTodayOnwards();
+
+        Cursor cursor = getContext().getContentResolver().query(mForecastUri,
+                MainActivity.MAIN_FORECAST_PROJECTION,
+                selection,
+                null,
+                sortOrder);
+        if (cursor == null) {
+            return Collections.emptyList();
+        }
+        try {
+            List<ForecastRow> rows = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                rows.add(ForecastRow.fromCursor(getContext(), cursor));
+            }
+            return Collections.unmodifiableList(rows);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public void deliverResult(List<ForecastRow> rows) {
+        if (isReset()) {
+            return;
+        }
+        mRows = rows;
+        mRowsFormatKey = mLoadingFormatKey;
+        if (isStarted()) {
+            super.deliverResult(rows);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        boolean rowsOutdated = mRows != null && !getFormatKey().equals(mRowsFormatKey);
+        if (mRows != null && !rowsOutdated) {
+            deliverResult(mRows);
+        }
+        if (!mObserverRegistered) {
+            getContext().getContentResolver().registerContentObserver(mForecastUri, true, mObserver);
+
+            IntentFilter formatChanges = new IntentFilter(Intent.ACTION_DATE_CHANGED);
+            formatChanges.addAction(Intent.ACTION_LOCALE_CHANGED);
+            formatChanges.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+            getContext().registerReceiver(mFormatChangeReceiver, formatChanges);
+
+            mObserverRegistered = true;
+        }
+        if (takeContentChanged() || mRows == null || rowsOutdated) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        mRows = null;
+        mRowsFormatKey = null;
+        if (mObserverRegistered) {
+            getContext().getContentResolver().unregisterContentObserver(mObserver);
+            getContext().unregisterReceiver(mFormatChangeReceiver);
+            mObserverRegistered = false;
+        }
+    }
+}
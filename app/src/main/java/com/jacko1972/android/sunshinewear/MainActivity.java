@@ -16,11 +16,9 @@
 package com.jacko1972.android.sunshinewear;
 
 import android.content.Intent;
-import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
 import android.support.v4.app.LoaderManager;
-import android.support.v4.content.CursorLoader;
 import android.support.v4.content.Loader;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.LinearLayoutManager;
@@ -37,8 +35,10 @@ import com.jacko1972.android.sunshinewear.data.SunshinePreferences;
 import com.jacko1972.android.sunshinewear.data.WeatherContract;
 import com.jacko1972.android.sunshinewear.sync.SunshineSyncUtils;
 
+import java.util.List;
+
 public class MainActivity extends AppCompatActivity implements
-        LoaderManager.LoaderCallbacks<Cursor>,
+        LoaderManager.LoaderCallbacks<List<ForecastRow>>,
         ForecastAdapter.ForecastAdapterOnClickHandler {
 
     private final String TAG = MainActivity.class.getSimpleName();
@@ -80,6 +80,9 @@ public class MainActivity extends AppCompatActivity implements
 
     private ProgressBar mLoadingIndicator;
 
+    /* The location the forecast loader was created for, so we notice when it changes */
+    private String mLocationSetting;
+
     GoogleApiClient googleClient;
 
     @Override
@@ -162,6 +165,23 @@ public class MainActivity extends AppCompatActivity implements
          */
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+
+        /* Someone is looking at the weather, so keep it fresher for a while */
+        SunshineSyncUtils.recordUserActivity(this);
+
+        /*
+         * The loader queries the weather of a single location. If the preferred location was
+         * changed in the settings, start over with a loader for the new one.
+         */
+        if (mLocationSetting != null
+                && !mLocationSetting.equals(SunshinePreferences.getPreferredWeatherLocation(this))) {
+            getSupportLoaderManager().restartLoader(ID_FORECAST_LOADER, null, this);
+        }
+    }
+
     /**
      * Uses the URI scheme for showing a location found on a map in conjunction with
      * an implicit Intent. This super-handy Intent is detailed in the "Common Intents" page of
@@ -198,29 +218,18 @@ public class MainActivity extends AppCompatActivity implements
      * @return A new Loader instance that is ready to start loading.
      */
     @Override
-    public Loader<Cursor> onCreateLoader(int loaderId, Bundle bundle) {
+    public Loader<List<ForecastRow>> onCreateLoader(int loaderId, Bundle bundle) {
 
 
         switch (loaderId) {
 
             case ID_FORECAST_LOADER:
-                /* URI for all rows of weather data in our weather table */
-                Uri forecastQueryUri = WeatherContract.WeatherEntry.CONTENT_URI;
-                /* Sort order: Ascending by date */
-                String sortOrder = WeatherContract.WeatherEntry.COLUMN_DATE + " ASC";
                 /*
-                 * A SELECTION in SQL declares which rows you'd like to return. In our case, we
-                 * want all weather data from today onwards that is stored in our weather table.
-                 * We created a handy method to do that in our WeatherEntry class.
+                 * All rows of weather data of the preferred location, already formatted for the
+                 * list on the loader's thread, so the list does no formatting while it scrolls
                  */
-                String selection = WeatherContract.WeatherEntry.getSqlSelectForTodayOnwards();
-
-                return new CursorLoader(this,
-                        forecastQueryUri,
-                        MAIN_FORECAST_PROJECTION,
-                        selection,
-                        null,
-                        sortOrder);
+                mLocationSetting = SunshinePreferences.getPreferredWeatherLocation(this);
+                return new ForecastRowLoader(this, mLocationSetting);
 
             default:
                 throw new RuntimeException("Loader Not Implemented: " + loaderId);
@@ -239,13 +248,19 @@ public class MainActivity extends AppCompatActivity implements
      * @param data   The data generated by the Loader.
      */
     @Override
-    public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
+    public void onLoadFinished(Loader<List<ForecastRow>> loader, List<ForecastRow> data) {
 
 
-        mForecastAdapter.swapCursor(data);
-        if (mPosition == RecyclerView.NO_POSITION) mPosition = 0;
-        mRecyclerView.smoothScrollToPosition(mPosition);
-        if (data.getCount() != 0) {
+        mForecastAdapter.swapRows(data);
+        /*
+         * Only scroll to the top on the first load. Later loads, such as after a sync, update the
+         * rows that changed in place, and shouldn't move the list out from under the user.
+         */
+        if (mPosition == RecyclerView.NO_POSITION) {
+            mPosition = 0;
+            mRecyclerView.smoothScrollToPosition(mPosition);
+        }
+        if (data.size() != 0) {
             showWeatherDataView();
         }
     }
@@ -258,12 +273,12 @@ public class MainActivity extends AppCompatActivity implements
      * @param loader The Loader that is being reset.
      */
     @Override
-    public void onLoaderReset(Loader<Cursor> loader) {
+    public void onLoaderReset(Loader<List<ForecastRow>> loader) {
         /*
          * Since this Loader's data is now invalid, we need to clear the Adapter that is
          * displaying the data.
          */
-        mForecastAdapter.swapCursor(null);
+        mForecastAdapter.swapRows(null);
     }
 
     /**
@@ -275,7 +290,8 @@ public class MainActivity extends AppCompatActivity implements
     @Override
     public void onClick(long date) {
         Intent weatherDetailIntent = new Intent(MainActivity.this, DetailActivity.class);
-        Uri uriForDateClicked = WeatherContract.WeatherEntry.buildWeatherUriWithDate(date);
+        Uri uriForDateClicked = WeatherContract.WeatherEntry
+                .buildWeatherUriWithLocationAndDate(mLocationSetting, date);
         weatherDetailIntent.setData(uriForDateClicked);
         startActivity(weatherDetailIntent);
     }
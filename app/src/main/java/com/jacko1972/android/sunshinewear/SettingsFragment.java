@@ -99,6 +99,9 @@ public class SettingsFragment extends PreferenceFragmentCompat implements
             // Wipe out any potential PlacePicker latlng values so that we can use this text entry.
             SunshinePreferences.resetLocationCoordinates(activity);
             SunshineSyncUtils.startImmediateSync(activity);
+        } else if (key.equals(getString(R.string.pref_additional_locations_key))) {
+            // fetch the weather of any location that was added, and drop any that was removed
+            SunshineSyncUtils.startImmediateSync(activity);
         } else if (key.equals(getString(R.string.pref_units_key))) {
             // units have changed. update lists of weather entries accordingly
             activity.getContentResolver().notifyChange(WeatherContract.WeatherEntry.CONTENT_URI, null);
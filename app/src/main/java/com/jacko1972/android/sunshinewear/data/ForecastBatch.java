@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear.data;
+
+import android.os.Bundle;
+
+import java.util.Arrays;
+
+/**
+ * A batch of rows for the weather table, kept in one primitive array per column rather than as
+ * one ContentValues per row. This avoids boxing every value, and the whole batch can be handed to
+ * {@link WeatherProvider} in a Bundle of primitive arrays (see
+ * {@link WeatherContract.WeatherEntry#METHOD_BULK_INSERT_BATCH}).
+ * <p>
+ * A forecast travels in this form all the way from the JSON parser, through the provider, to the
+ * watch face, and is never turned into ContentValues along the way.
+ */
+public final class ForecastBatch {
+
+    /* Bundle keys, one per column */
+    private static final String KEY_SIZE = "size";
+    private static final String KEY_DATES = WeatherContract.WeatherEntry.COLUMN_DATE;
+    private static final String KEY_WEATHER_IDS = WeatherContract.WeatherEntry.COLUMN_WEATHER_ID;
+    private static final String KEY_MIN_TEMPS = WeatherContract.WeatherEntry.COLUMN_MIN_TEMP;
+    private static final String KEY_MAX_TEMPS = WeatherContract.WeatherEntry.COLUMN_MAX_TEMP;
+    private static final String KEY_HUMIDITIES = WeatherContract.WeatherEntry.COLUMN_HUMIDITY;
+    private static final String KEY_PRESSURES = WeatherContract.WeatherEntry.COLUMN_PRESSURE;
+    private static final String KEY_WIND_SPEEDS = WeatherContract.WeatherEntry.COLUMN_WIND_SPEED;
+    private static final String KEY_DEGREES = WeatherContract.WeatherEntry.COLUMN_DEGREES;
+    private static final String KEY_COORD_LAT = WeatherContract.LocationEntry.COLUMN_COORD_LAT;
+    private static final String KEY_COORD_LONG = WeatherContract.LocationEntry.COLUMN_COORD_LONG;
+
+    private int mSize;
+
+    private long[] mDates;
+    private int[] mWeatherIds;
+    private double[] mMinTemps;
+    private double[] mMaxTemps;
+    private double[] mHumidities;
+    private double[] mPressures;
+    private double[] mWindSpeeds;
+    private double[] mDegrees;
+
+    /* Where the forecast is for, as reported by the weather server */
+    private double mCoordLat;
+    private double mCoordLong;
+
+    /**
+     * Creates an empty batch.
+     *
+     * @param capacity The number of rows the batch can hold before it has to grow
+     */
+    public ForecastBatch(int capacity) {
+        mDates = new long[capacity];
+        mWeatherIds = new int[capacity];
+        mMinTemps = new double[capacity];
+        mMaxTemps = new double[capacity];
+        mHumidities = new double[capacity];
+        mPressures = new double[capacity];
+        mWindSpeeds = new double[capacity];
+        mDegrees = new double[capacity];
+    }
+
+    /**
+     * Appends a row to the batch. The values are in the same units as the matching columns of
+     * {@link WeatherContract.WeatherEntry}.
+     */
+    public void add(long date, int weatherId, double minTemp, double maxTemp, double humidity,
+                    double pressure, double windSpeed, double degrees) {
+        if (mSize == mDates.length) {
+            grow();
+        }
+
+        mDates[mSize] = date;
+        mWeatherIds[mSize] = weatherId;
+        mMinTemps[mSize] = minTemp;
+        mMaxTemps[mSize] = maxTemp;
+        mHumidities[mSize] = humidity;
+        mPressures[mSize] = pressure;
+        mWindSpeeds[mSize] = windSpeed;
+        mDegrees[mSize] = degrees;
+        mSize++;
+    }
+
+    private void grow() {
+        int capacity = Math.max(mDates.length * 2, 1);
+        mDates = Arrays.copyOf(mDates, capacity);
+        mWeatherIds = Arrays.copyOf(mWeatherIds, capacity);
+        mMinTemps = Arrays.copyOf(mMinTemps, capacity);
+        mMaxTemps = Arrays.copyOf(mMaxTemps, capacity);
+        mHumidities = Arrays.copyOf(mHumidities, capacity);
+        mPressures = Arrays.copyOf(mPressures, capacity);
+        mWindSpeeds = Arrays.copyOf(mWindSpeeds, capacity);
+        mDegrees = Arrays.copyOf(mDegrees, capacity);
+    }
+
+    /**
+     * Sets the coordinates of the location this forecast is for.
+     *
+     * @param lat The latitude of the location
+     * @param lon The longitude of the location
+     */
+    public void setCoordinates(double lat, double lon) {
+        mCoordLat = lat;
+        mCoordLong = lon;
+    }
+
+    public double getCoordLat() {
+        return mCoordLat;
+    }
+
+    public double getCoordLong() {
+        return mCoordLong;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public long getDate(int row) {
+        return mDates[row];
+    }
+
+    public int getWeatherId(int row) {
+        return mWeatherIds[row];
+    }
+
+    public double getMinTemp(int row) {
+        return mMinTemps[row];
+    }
+
+    public double getMaxTemp(int row) {
+        return mMaxTemps[row];
+    }
+
+    public double getHumidity(int row) {
+        return mHumidities[row];
+    }
+
+    public double getPressure(int row) {
+        return mPressures[row];
+    }
+
+    public double getWindSpeed(int row) {
+        return mWindSpeeds[row];
+    }
+
+    public double getDegrees(int row) {
+        return mDegrees[row];
+    }
+
+    /**
+     * Finds the row holding the given date. The batch must be sorted by date, oldest first.
+     *
+     * @param date Normalized date in milliseconds
+     * @return The row of the date, or a negative number if the batch doesn't hold it
+     */
+    public int indexOfDate(long date) {
+        return Arrays.binarySearch(mDates, 0, mSize, date);
+    }
+
+    /**
+     * Writes the batch into a Bundle as one primitive array per column.
+     *
+     * @param bundle The Bundle to write into
+     */
+    public void writeToBundle(Bundle bundle) {
+        bundle.putInt(KEY_SIZE, mSize);
+        bundle.putLongArray(KEY_DATES, mDates);
+        bundle.putIntArray(KEY_WEATHER_IDS, mWeatherIds);
+        bundle.putDoubleArray(KEY_MIN_TEMPS, mMinTemps);
+        bundle.putDoubleArray(KEY_MAX_TEMPS, mMaxTemps);
+        bundle.putDoubleArray(KEY_HUMIDITIES, mHumidities);
+        bundle.putDoubleArray(KEY_PRESSURES, mPressures);
+        bundle.putDoubleArray(KEY_WIND_SPEEDS, mWindSpeeds);
+        bundle.putDoubleArray(KEY_DEGREES, mDegrees);
+        bundle.putDouble(KEY_COORD_LAT, mCoordLat);
+        bundle.putDouble(KEY_COORD_LONG, mCoordLong);
+    }
+
+    /**
+     * Reads a batch back from a Bundle written by {@link #writeToBundle(Bundle)}. The arrays are
+     * used as they are, not copied.
+     *
+     * @param bundle The Bundle to read from
+     * @return The batch held by the Bundle
+     */
+    public static ForecastBatch readFromBundle(Bundle bundle) {
+        ForecastBatch batch = new ForecastBatch(0);
+        batch.mSize = bundle.getInt(KEY_SIZE);
+        batch.mDates = bundle.getLongArray(KEY_DATES);
+        batch.mWeatherIds = bundle.getIntArray(KEY_WEATHER_IDS);
+        batch.mMinTemps = bundle.getDoubleArray(KEY_MIN_TEMPS);
+        batch.mMaxTemps = bundle.getDoubleArray(KEY_MAX_TEMPS);
+        batch.mHumidities = bundle.getDoubleArray(KEY_HUMIDITIES);
+        batch.mPressures = bundle.getDoubleArray(KEY_PRESSURES);
+        batch.mWindSpeeds = bundle.getDoubleArray(KEY_WIND_SPEEDS);
+        batch.mDegrees = bundle.getDoubleArray(KEY_DEGREES);
+        batch.mCoordLat = bundle.getDouble(KEY_COORD_LAT);
+        batch.mCoordLong = bundle.getDouble(KEY_COORD_LONG);
+        return batch;
+    }
+}
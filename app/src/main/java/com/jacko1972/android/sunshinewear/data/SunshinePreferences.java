@@ -20,6 +20,11 @@ import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 
 import com.jacko1972.android.sunshinewear.R;
+import com.jacko1972.android.sunshinewear.sync.AdaptiveSyncPolicy;
+import com.jacko1972.android.sunshinewear.utilities.SunshineDateUtils;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 public final class SunshinePreferences {
 
@@ -31,6 +36,42 @@ public final class SunshinePreferences {
     public static final String PREF_COORD_LAT = "coord_lat";
     public static final String PREF_COORD_LONG = "coord_long";
 
+    /*
+     * HTTP cache validators for the last forecast we stored from each URL, along with the day
+     * they were received on. They let us ask the server whether the forecast has changed instead
+     * of downloading it again. Each key is followed by the URL the validators were issued for, as
+     * every location is fetched from its own URL.
+     */
+    public static final String PREF_RESPONSE_PREFIX = "response_";
+    public static final String PREF_RESPONSE_ETAG = PREF_RESPONSE_PREFIX + "etag:";
+    public static final String PREF_RESPONSE_LAST_MODIFIED = PREF_RESPONSE_PREFIX + "last_modified:";
+    public static final String PREF_RESPONSE_DAY = PREF_RESPONSE_PREFIX + "day:";
+
+    /*
+     * The state of the AdaptiveSyncPolicy, and the interval the sync job was last scheduled with,
+     * so that we only reschedule the job when the interval changes.
+     */
+    public static final String PREF_SYNC_BACKOFF_INTERVAL = "sync_backoff_interval_seconds";
+    public static final String PREF_LAST_USER_ACTIVITY = "last_user_activity";
+    public static final String PREF_SCHEDULED_SYNC_INTERVAL = "scheduled_sync_interval_seconds";
+
+    /*
+     * The newest date we have stored weather for, and the location it was stored for. Along with
+     * the time of the last successful sync, this tells us at startup whether we have any weather
+     * to show without querying the database.
+     */
+    public static final String PREF_NEWEST_FORECAST_LOCATION = "newest_forecast_location";
+    public static final String PREF_NEWEST_FORECAST_DATE = "newest_forecast_date";
+
+    /*
+     * The location the last successful sync was for. The time of that sync only says how fresh
+     * our weather is while the preferred location is still the same one.
+     */
+    public static final String PREF_LAST_SYNC_LOCATION = "last_sync_location";
+
+    /* Separates the locations of the additional locations preference */
+    private static final String ADDITIONAL_LOCATIONS_SEPARATOR = ";";
+
     /**
      * Helper method to handle setting location details in Preferences (city name, latitude,
      * longitude)
@@ -82,6 +123,31 @@ public final class SunshinePreferences {
         return sp.getString(keyForLocation, defaultLocation);
     }
 
+    /**
+     * Returns every location we fetch weather for. The preferred location always comes first,
+     * followed by the additional locations the user entered, without duplicates.
+     *
+     * @param context Context used to access SharedPreferences
+     * @return The location settings to sync, never empty
+     */
+    public static String[] getWeatherLocations(Context context) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+
+        String keyForAdditionalLocations = context.getString(R.string.pref_additional_locations_key);
+        String additionalLocations = sp.getString(keyForAdditionalLocations, "");
+
+        Set<String> locations = new LinkedHashSet<>();
+        locations.add(getPreferredWeatherLocation(context));
+        for (String location : additionalLocations.split(ADDITIONAL_LOCATIONS_SEPARATOR)) {
+            String trimmedLocation = location.trim();
+            if (trimmedLocation.length() != 0) {
+                locations.add(trimmedLocation);
+            }
+        }
+
+        return locations.toArray(new String[locations.size()]);
+    }
+
     /**
      * Returns true if the user has selected metric temperature display.
      *
@@ -242,4 +308,251 @@ public final class SunshinePreferences {
         editor.putLong(lastNotificationKey, timeOfNotification);
         editor.apply();
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the last time the weather of the given location was successfully synced (in UNIX
+     * time), whether or not the forecast had changed. A sync of any other location doesn't
+     * count, as the weather it stored isn't the weather we'd show for this one.
+     *
+     * @param context         Used to access SharedPreferences
+     * @param locationSetting The location we want weather for
+     * @return UNIX time of the last successful sync, or 0 if the location hasn't been synced
+     */
+    public static long getLastSyncTimeInMillis(Context context, String locationSetting) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        if (!locationSetting.equals(sp.getString(PREF_LAST_SYNC_LOCATION, null))) {
+            return 0;
+        }
+        String lastSyncKey = context.getString(R.string.pref_last_sync);
+        return sp.getLong(lastSyncKey, 0);
+    }
+
+    /**
+     * Returns the elapsed time in milliseconds since the weather of the given location was last
+     * successfully synced.
+     *
+     * @param context         Used to access SharedPreferences
+     * @param locationSetting The location we want weather for
+     * @return Elapsed time in milliseconds since the last successful sync of the location
+     */
+    public static long getEllapsedTimeSinceLastSync(Context context, String locationSetting) {
+        return System.currentTimeMillis() - getLastSyncTimeInMillis(context, locationSetting);
+    }
+
+    /**
+     * Saves the time of a successful sync of the preferred location, along with that location.
+     *
+     * @param context         Used to access SharedPreferences
+     * @param locationSetting The location that was synced
+     * @param timeOfSync      Time of the sync to save (in UNIX time)
+     */
+    public static void saveLastSyncTime(Context context, String locationSetting,
+                                        long timeOfSync) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = sp.edit();
+        String lastSyncKey = context.getString(R.string.pref_last_sync);
+        editor.putString(PREF_LAST_SYNC_LOCATION, locationSetting);
+        editor.putLong(lastSyncKey, timeOfSync);
+        editor.apply();
+    }
+
+    /**
+     * Saves the HTTP cache validators of a forecast response once that forecast has been stored.
+     * Only the validators of the most recent response from each URL are kept, as they are only
+     * valid for as long as the data they describe is what's in our database.
+     *
+     * @param context      Used to access SharedPreferences
+     * @param url          The URL the response was fetched from
+     * @param eTag         The ETag header of the response, may be null
+     * @param lastModified The Last-Modified header of the response, may be null
+     */
+    public static void saveResponseValidators(Context context, String url, String eTag,
+                                              String lastModified) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = sp.edit();
+
+        editor.putString(PREF_RESPONSE_ETAG + url, eTag);
+        editor.putString(PREF_RESPONSE_LAST_MODIFIED + url, lastModified);
+        editor.putLong(PREF_RESPONSE_DAY + url, SunshineDateUtils.getNormalizedUtcDateForToday());
+        editor.apply();
+    }
+
+    /**
+     * Returns the ETag and Last-Modified validators to send with a request to the given URL, or
+     * null if we have none we can trust.
+     * <p>
+     * The parser dates each forecast day relative to the day the response was parsed on, so a
+     * response that was stored on an earlier day can't be reused even if the server says it is
+     * unchanged. In that case, as well as when nothing was stored from the URL, no validators
+     * are returned.
+     *
+     * @param context Used to access SharedPreferences
+     * @param url     The URL about to be requested
+     * @return an array holding the ETag and Last-Modified values (either may be null), or null
+     */
+    public static String[] getResponseValidators(Context context, String url) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+
+        long validatedDay = sp.getLong(PREF_RESPONSE_DAY + url, 0);
+
+        if (validatedDay != SunshineDateUtils.getNormalizedUtcDateForToday()) {
+            return null;
+        }
+
+        String[] validators = new String[2];
+        validators[0] = sp.getString(PREF_RESPONSE_ETAG + url, null);
+        validators[1] = sp.getString(PREF_RESPONSE_LAST_MODIFIED + url, null);
+
+        if (validators[0] == null && validators[1] == null) {
+            return null;
+        }
+        return validators;
+    }
+
+    /**
+     * Forgets the saved HTTP cache validators of every URL, forcing the next sync to download
+     * the full forecasts. This must be called whenever the stored weather data no longer matches the last
+     * response, for example when the weather table has been found empty.
+     *
+     * @param context Used to access SharedPreferences
+     */
+    public static void resetResponseValidators(Context context) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = sp.edit();
+
+        for (String key : sp.getAll().keySet()) {
+            if (key.startsWith(PREF_RESPONSE_PREFIX)) {
+                editor.remove(key);
+            }
+        }
+        editor.apply();
+    }
+
+    /**
+     * Forgets the saved HTTP cache validators of one URL, for when the weather stored from it
+     * has been deleted.
+     *
+     * @param context Used to access SharedPreferences
+     * @param url     The URL whose validators to forget
+     */
+    public static void resetResponseValidators(Context context, String url) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = sp.edit();
+
+        editor.remove(PREF_RESPONSE_ETAG + url);
+        editor.remove(PREF_RESPONSE_LAST_MODIFIED + url);
+        editor.remove(PREF_RESPONSE_DAY + url);
+        editor.apply();
+    }
+
+    /**
+     * Returns the sync policy as it was last saved, or the default policy if it never was.
+     *
+     * @param context Used to access SharedPreferences
+     * @return The sync policy
+     */
+    public static AdaptiveSyncPolicy getAdaptiveSyncPolicy(Context context) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        AdaptiveSyncPolicy defaultPolicy = AdaptiveSyncPolicy.createDefault();
+        return new AdaptiveSyncPolicy(
+                sp.getLong(PREF_SYNC_BACKOFF_INTERVAL, defaultPolicy.getBackoffIntervalSeconds()),
+                sp.getLong(PREF_LAST_USER_ACTIVITY, defaultPolicy.getLastUserActivityMillis()));
+    }
+
+    /**
+     * Saves the state of the sync policy.
+     *
+     * @param context Used to access SharedPreferences
+     * @param policy  The policy to save
+     */
+    public static void saveAdaptiveSyncPolicy(Context context, AdaptiveSyncPolicy policy) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = sp.edit();
+        editor.putLong(PREF_SYNC_BACKOFF_INTERVAL, policy.getBackoffIntervalSeconds());
+        editor.putLong(PREF_LAST_USER_ACTIVITY, policy.getLastUserActivityMillis());
+        editor.apply();
+    }
+
+    /**
+     * Returns the interval the sync job was last scheduled with.
+     *
+     * @param context Used to access SharedPreferences
+     * @return The interval in seconds, or -1 if the job hasn't been scheduled yet
+     */
+    public static long getScheduledSyncInterval(Context context) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        return sp.getLong(PREF_SCHEDULED_SYNC_INTERVAL, -1);
+    }
+
+    /**
+     * Saves the interval the sync job was scheduled with.
+     *
+     * @param context         Used to access SharedPreferences
+     * @param intervalSeconds The interval in seconds
+     */
+    public static void saveScheduledSyncInterval(Context context, long intervalSeconds) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = sp.edit();
+        editor.putLong(PREF_SCHEDULED_SYNC_INTERVAL, intervalSeconds);
+        editor.apply();
+    }
+
+    /**
+     * Saves the newest date of the forecast just stored for the preferred location.
+     *
+     * @param context         Used to access SharedPreferences
+     * @param locationSetting The location the forecast was stored for
+     * @param newestDate      The last normalized date of the forecast
+     */
+    public static void saveNewestForecastDate(Context context, String locationSetting,
+                                              long newestDate) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = sp.edit();
+        editor.putString(PREF_NEWEST_FORECAST_LOCATION, locationSetting);
+        editor.putLong(PREF_NEWEST_FORECAST_DATE, newestDate);
+        editor.apply();
+    }
+
+    /**
+     * Returns the newest date we have stored weather for, if it was stored for the given
+     * location.
+     *
+     * @param context         Used to access SharedPreferences
+     * @param locationSetting The location we want weather for
+     * @return The newest normalized date, or -1 if we haven't stored weather for the location
+     */
+    public static long getNewestForecastDate(Context context, String locationSetting) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        if (!locationSetting.equals(sp.getString(PREF_NEWEST_FORECAST_LOCATION, null))) {
+            return -1;
+        }
+        return sp.getLong(PREF_NEWEST_FORECAST_DATE, -1);
+    }
+
+    /**
+     * Forgets the newest stored date, for when the weather we had stored is gone.
+     *
+     * @param context Used to access SharedPreferences
+     */
+    public static void resetNewestForecastDate(Context context) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = sp.edit();
+        editor.remove(PREF_NEWEST_FORECAST_LOCATION);
+        editor.remove(PREF_NEWEST_FORECAST_DATE);
+        editor.apply();
+    }
+
+    /**
+     * Forgets the newest stored date if it was stored for the given location, for when that
+     * location's weather has been deleted.
+     *
+     * @param context         Used to access SharedPreferences
+     * @param locationSetting The location whose weather is gone
+     */
+    public static void resetNewestForecastDate(Context context, String locationSetting) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+        if (locationSetting.equals(sp.getString(PREF_NEWEST_FORECAST_LOCATION, null))) {
+            resetNewestForecastDate(context);
+        }
+    }
+}
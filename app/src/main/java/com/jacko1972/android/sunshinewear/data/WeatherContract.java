@@ -55,6 +55,33 @@ public class WeatherContract {
      * "givemeroot". At least, let's hope not. Don't be that dev, reader. Don't be that dev.
      */
     public static final String PATH_WEATHER = "weather";
+    public static final String PATH_LOCATION = "location";
+
+    /* Inner class that defines the table contents of the location table */
+    public static final class LocationEntry implements BaseColumns {
+
+        /* The base CONTENT_URI used to query the Location table from the content provider */
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon()
+                .appendPath(PATH_LOCATION)
+                .build();
+
+        /* Used internally as the name of our location table. */
+        public static final String TABLE_NAME = "location";
+
+        /*
+         * The location setting string is what will be sent to OpenWeatherMap as the location
+         * query, exactly as the user entered it in the preferences. Each location is only stored
+         * once.
+         */
+        public static final String COLUMN_LOCATION_SETTING = "location_setting";
+
+        /*
+         * In order to uniquely pinpoint the location on the map when we launch the map intent, we
+         * store the latitude and longitude as returned by OpenWeatherMap.
+         */
+        public static final String COLUMN_COORD_LAT = "coord_lat";
+        public static final String COLUMN_COORD_LONG = "coord_long";
+    }
 
     /* Inner class that defines the table contents of the weather table */
     public static final class WeatherEntry implements BaseColumns {
@@ -64,9 +91,23 @@ public class WeatherContract {
                 .appendPath(PATH_WEATHER)
                 .build();
 
+        /*
+         * The base URI for the weather of a single location, as in
+         *
+         *     content://com.example.android.sunshine/weather/location/94043/
+         *
+         * See buildWeatherUriWithLocation and buildWeatherUriWithLocationAndDate.
+         */
+        private static final Uri LOCATION_CONTENT_URI = CONTENT_URI.buildUpon()
+                .appendPath(PATH_LOCATION)
+                .build();
+
         /* Used internally as the name of our weather table. */
         public static final String TABLE_NAME = "weather";
 
+        /* Column with the foreign key into the location table */
+        public static final String COLUMN_LOC_KEY = "location_id";
+
         /*
          * The date column will store the UTC date that correlates to the local date for which
          * each particular weather row represents. For example, if you live in the Eastern
@@ -109,20 +150,70 @@ public class WeatherContract {
          */
         public static final String COLUMN_DEGREES = "degrees";
 
+        /*
+         * Provider method, used with ContentResolver#call on CONTENT_URI, that replaces the stored
+         * forecast with a new one. Unlike a delete followed by a bulkInsert, it only writes the
+         * days that actually changed, removes the days that are no longer part of the forecast,
+         * and does both in one transaction with a single change notification. The location
+         * setting the forecast is for is passed as the arg, and only that location's days are
+         * touched. The new forecast is written into the extras with ForecastBatch#writeToBundle,
+         * and the number of rows that were written or removed is returned under
+         * EXTRA_ROWS_CHANGED.
+         */
+        public static final String METHOD_SYNC_WEATHER = "sync_weather";
+        public static final String EXTRA_ROWS_CHANGED = "rows_changed";
+
+        /*
+         * Provider method, used with ContentResolver#call on CONTENT_URI, that inserts a
+         * ForecastBatch. It behaves like bulkInsert, but the rows travel as primitive arrays
+         * rather than as one ContentValues per row. The location setting the rows belong to is
+         * passed as the arg, the batch is written into the extras with
+         * ForecastBatch#writeToBundle, and the number of rows inserted is returned under
+         * EXTRA_ROWS_INSERTED.
+         */
+        public static final String METHOD_BULK_INSERT_BATCH = "bulk_insert_batch";
+        public static final String EXTRA_ROWS_INSERTED = "rows_inserted";
+
+        /**
+         * Builds a URI for all of the weather of a single location. This is what the forecast
+         * list queries, using the user's preferred location.
+         *
+         * @param locationSetting The location setting, as stored in the location table
+         * @return Uri to query the weather of that location
+         */
+        public static Uri buildWeatherUriWithLocation(String locationSetting) {
+            return LOCATION_CONTENT_URI.buildUpon()
+                    .appendPath(locationSetting)
+                    .build();
+        }
+
         /**
-         * Builds a URI that adds the weather date to the end of the forecast content URI path.
-         * This is used to query details about a single weather entry by date. This is what we
-         * use for the detail view query. We assume a normalized date is passed to this method.
+         * Builds a URI for the weather of a single location on a single day. This is used to
+         * query details about a single weather entry, such as for the detail view. There is no
+         * URI for a date alone, as every location we track has its own weather for each day.
          *
-         * @param date Normalized date in milliseconds
-         * @return Uri to query details about a single weather entry
+         * @param locationSetting The location setting, as stored in the location table
+         * @param date            Normalized date in milliseconds
+         * @return Uri to query details about a single weather entry of that location
          */
-        public static Uri buildWeatherUriWithDate(long date) {
-            return CONTENT_URI.buildUpon()
+        public static Uri buildWeatherUriWithLocationAndDate(String locationSetting, long date) {
+            return LOCATION_CONTENT_URI.buildUpon()
+                    .appendPath(locationSetting)
                     .appendPath(Long.toString(date))
                     .build();
         }
 
+        /**
+         * Returns the location setting of a URI built by {@link #buildWeatherUriWithLocation}
+         * or {@link #buildWeatherUriWithLocationAndDate}.
+         *
+         * @param uri The location-scoped weather URI
+         * @return The location setting the URI is for
+         */
+        public static String getLocationSettingFromUri(Uri uri) {
+            return uri.getPathSegments().get(2);
+        }
+
         /**
          * Returns just the selection part of the weather query from a normalized today value.
          * This is used to get a weather forecast from today's date. To make this easy to use
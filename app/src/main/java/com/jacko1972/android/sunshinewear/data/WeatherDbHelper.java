@@ -19,6 +19,7 @@ import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+import com.jacko1972.android.sunshinewear.data.WeatherContract.LocationEntry;
 import com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry;
 
 /**
@@ -42,11 +43,17 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
      * versions of Sunshine could cause everything to break. Although that is certainly a rare
      * use-case, we wanted to watch out for it and warn you what could happen if you mistakenly
      * version your databases.
+     *
+     * Version 4 added the location table, so that the weather of more than one location can be
+     * stored.
      */
-    private static final int DATABASE_VERSION = 3;
+    private static final int DATABASE_VERSION = 4;
+
+    private final Context mContext;
 
     public WeatherDbHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        mContext = context;
     }
 
     /**
@@ -58,6 +65,22 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
     @Override
     public void onCreate(SQLiteDatabase sqLiteDatabase) {
 
+        /*
+         * This String will contain a simple SQL statement that will create a table that will
+         * hold the locations we store weather data for. Each location setting is only stored
+         * once.
+         */
+        final String SQL_CREATE_LOCATION_TABLE =
+
+                "CREATE TABLE " + LocationEntry.TABLE_NAME + " (" +
+
+                LocationEntry._ID                     + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+
+                LocationEntry.COLUMN_LOCATION_SETTING + " TEXT UNIQUE NOT NULL, "              +
+
+                LocationEntry.COLUMN_COORD_LAT        + " REAL NOT NULL, "                     +
+                LocationEntry.COLUMN_COORD_LONG       + " REAL NOT NULL);";
+
         /*
          * This String will contain a simple SQL statement that will create a table that will
          * cache our weather data.
@@ -75,6 +98,9 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
 
                 WeatherEntry.COLUMN_DATE       + " INTEGER NOT NULL, "                 +
 
+                /* The location this day of weather is for */
+                WeatherEntry.COLUMN_LOC_KEY    + " INTEGER NOT NULL, "                 +
+
                 WeatherEntry.COLUMN_WEATHER_ID + " INTEGER NOT NULL,"                  +
 
                 WeatherEntry.COLUMN_MIN_TEMP   + " REAL NOT NULL, "                    +
@@ -86,19 +112,33 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
                 WeatherEntry.COLUMN_WIND_SPEED + " REAL NOT NULL, "                    +
                 WeatherEntry.COLUMN_DEGREES    + " REAL NOT NULL, "                    +
 
+                " FOREIGN KEY (" + WeatherEntry.COLUMN_LOC_KEY + ") REFERENCES "   +
+                LocationEntry.TABLE_NAME + " (" + LocationEntry._ID + "), "        +
+
                 /*
-                 * To ensure this table can only contain one weather entry per date, we declare
-                 * the date column to be unique. We also specify "ON CONFLICT REPLACE". This tells
-                 * SQLite that if we have a weather entry for a certain date and we attempt to
-                 * insert another weather entry with that date, we replace the old weather entry.
+                 * To ensure this table can only contain one weather entry per date and location,
+                 * we declare the date and location columns to be unique together. We also specify
+                 * "ON CONFLICT REPLACE". This tells SQLite that if we have a weather entry for a
+                 * certain date and location and we attempt to insert another weather entry with
+                 * that date and location, we replace the old weather entry.
                  */
-                " UNIQUE (" + WeatherEntry.COLUMN_DATE + ") ON CONFLICT REPLACE);";
+                " UNIQUE (" + WeatherEntry.COLUMN_DATE + ", "
+                        + WeatherEntry.COLUMN_LOC_KEY + ") ON CONFLICT REPLACE);";
 
         /*
          * After we've spelled out our SQLite table creation statement above, we actually execute
          * that SQL with the execSQL method of our SQLite database object.
          */
+        sqLiteDatabase.execSQL(SQL_CREATE_LOCATION_TABLE);
         sqLiteDatabase.execSQL(SQL_CREATE_WEATHER_TABLE);
+
+        /*
+         * The tables are empty, so whatever the preferences say we have stored is gone. That
+         * includes the validators of the last responses, which would otherwise get us told the
+         * weather we no longer have is unchanged.
+         */
+        SunshinePreferences.resetNewestForecastDate(mContext);
+        SunshinePreferences.resetResponseValidators(mContext);
     }
 
     /**
@@ -116,6 +156,7 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
     @Override
     public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
         sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + WeatherEntry.TABLE_NAME);
+        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + LocationEntry.TABLE_NAME);
         onCreate(sqLiteDatabase);
     }
 }
\ No newline at end of file
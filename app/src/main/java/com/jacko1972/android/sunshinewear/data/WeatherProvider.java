@@ -20,12 +20,22 @@ import android.content.ContentProvider;
 import android.content.ContentValues;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
+import android.os.Bundle;
 import android.support.annotation.NonNull;
+import android.text.TextUtils;
+import android.util.Log;
 
+import com.jacko1972.android.sunshinewear.sync.SyncTelemetry;
 import com.jacko1972.android.sunshinewear.utilities.SunshineDateUtils;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 /**
  * This class serves as the ContentProvider for all of Sunshine's data. This class allows us to
  * bulkInsert data, query data, and delete data.
@@ -38,13 +48,17 @@ import com.jacko1972.android.sunshinewear.utilities.SunshineDateUtils;
  */
 public class WeatherProvider extends ContentProvider {
 
+    private static final String TAG = WeatherProvider.class.getSimpleName();
+
     /*
      * These constant will be used to match URIs with the data they are looking for. We will take
      * advantage of the UriMatcher class to make that matching MUCH easier than doing something
      * ourselves, such as using regular expressions.
      */
     public static final int CODE_WEATHER = 100;
-    public static final int CODE_WEATHER_WITH_DATE = 101;
+    public static final int CODE_WEATHER_WITH_LOCATION = 102;
+    public static final int CODE_WEATHER_WITH_LOCATION_AND_DATE = 103;
+    public static final int CODE_LOCATION = 300;
 
     /*
      * The URI Matcher used by this content provider. The leading "s" in this variable name
@@ -52,11 +66,84 @@ public class WeatherProvider extends ContentProvider {
      * common convention in Android programming.
      */
     private static final UriMatcher sUriMatcher = buildUriMatcher();
+
+    /*
+     * The columns that make up a day's forecast, apart from its date. A stored day is only
+     * rewritten during a sync if one of these differs from the new forecast.
+     */
+    private static final String[] WEATHER_DATA_COLUMNS = {
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
+            WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+            WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherContract.WeatherEntry.COLUMN_DEGREES,
+    };
+
+    /*
+     * Inserts a single day of weather. The columns are bound by position, in the order of
+     * INSERT_COLUMNS, so that the statement can be compiled once and reused for every row.
+     * Conflicting dates are replaced by the table's UNIQUE constraint.
+     */
+    private static final String[] INSERT_COLUMNS = {
+            WeatherContract.WeatherEntry.COLUMN_DATE,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
+            WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+            WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherContract.WeatherEntry.COLUMN_DEGREES,
+            WeatherContract.WeatherEntry.COLUMN_LOC_KEY,
+    };
+
+    private static final String SQL_INSERT_WEATHER = "INSERT INTO "
+            + WeatherContract.WeatherEntry.TABLE_NAME
+            + " (" + TextUtils.join(", ", INSERT_COLUMNS) + ")"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /*
+     * Rewrites the forecast of a single, already stored day. The columns of WEATHER_DATA_COLUMNS
+     * are bound first, in order, followed by the date and the location of the day to update.
+     */
+    private static final String SQL_UPDATE_WEATHER = "UPDATE "
+            + WeatherContract.WeatherEntry.TABLE_NAME
+            + " SET " + TextUtils.join(" = ?, ", WEATHER_DATA_COLUMNS) + " = ?"
+            + " WHERE " + WeatherContract.WeatherEntry.COLUMN_DATE + " = ?"
+            + " AND " + WeatherContract.WeatherEntry.COLUMN_LOC_KEY + " = ?";
+
+    /* Selects the rows of weather that belong to the location with the setting given as argument */
+    private static final String LOCATION_SETTING_SELECTION =
+            WeatherContract.WeatherEntry.COLUMN_LOC_KEY + " = (SELECT "
+                    + WeatherContract.LocationEntry._ID
+                    + " FROM " + WeatherContract.LocationEntry.TABLE_NAME
+                    + " WHERE " + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?)";
+
+    /* Same as LOCATION_SETTING_SELECTION, narrowed down to one date given as second argument */
+    private static final String LOCATION_SETTING_WITH_DATE_SELECTION =
+            LOCATION_SETTING_SELECTION
+                    + " AND " + WeatherContract.WeatherEntry.COLUMN_DATE + " = ?";
+
+    /* Selects the rows of weather that belong to one location, given by its _ID */
+    private static final String LOCATION_ID_SELECTION =
+            WeatherContract.WeatherEntry.COLUMN_LOC_KEY + " = ?";
+
     private WeatherDbHelper mOpenHelper;
 
+    /*
+     * Compiled form of SQL_INSERT_WEATHER. It is only ever used inside a write transaction, and
+     * SQLite only allows one of those at a time, so callers never share it concurrently.
+     */
+    private SQLiteStatement mInsertWeatherStatement;
+
+    /* Compiled form of SQL_UPDATE_WEATHER, used the same way as mInsertWeatherStatement */
+    private SQLiteStatement mUpdateWeatherStatement;
+
     /**
-     * Creates the UriMatcher that will match each URI to the CODE_WEATHER and
-     * CODE_WEATHER_WITH_DATE constants defined above.
+     * Creates the UriMatcher that will match each URI to the CODE_WEATHER,
+     * CODE_WEATHER_WITH_LOCATION, CODE_WEATHER_WITH_LOCATION_AND_DATE and CODE_LOCATION
+     * constants defined above.
      * <p>
      * It's possible you might be thinking, "Why create a UriMatcher when you can use regular
      * expressions instead? After all, we really just need to match some patterns, and we can
@@ -68,7 +155,7 @@ public class WeatherProvider extends ContentProvider {
      * been tested and proven, you should almost always use it unless there is a compelling
      * reason not to.
      *
-     * @return A UriMatcher that correctly matches the constants for CODE_WEATHER and CODE_WEATHER_WITH_DATE
+     * @return A UriMatcher that correctly matches the URIs of our weather and locations
      */
     public static UriMatcher buildUriMatcher() {
 
@@ -83,18 +170,32 @@ public class WeatherProvider extends ContentProvider {
         /*
          * For each type of URI you want to add, create a corresponding code. Preferably, these are
          * constant fields in your class so that you can use them throughout the class and you no
-         * they aren't going to change. In Sunshine, we use CODE_WEATHER or CODE_WEATHER_WITH_DATE.
+         * they aren't going to change. In Sunshine, we use the CODE_ constants above.
          */
 
         /* This URI is content://com.example.android.sunshine/weather/ */
         matcher.addURI(authority, WeatherContract.PATH_WEATHER, CODE_WEATHER);
 
         /*
-         * This URI would look something like content://com.example.android.sunshine/weather/1472214172
-         * The "/#" signifies to the UriMatcher that if PATH_WEATHER is followed by ANY number,
-         * that it should return the CODE_WEATHER_WITH_DATE code
+         * A date alone, such as content://com.example.android.sunshine/weather/1472214172, is not
+         * matched. Every location has its own row for each day, so a date needs its location.
          */
-        matcher.addURI(authority, WeatherContract.PATH_WEATHER + "/#", CODE_WEATHER_WITH_DATE);
+
+        /*
+         * These URIs would look something like
+         * content://com.example.android.sunshine/weather/location/94043 and
+         * content://com.example.android.sunshine/weather/location/94043/1472214172
+         * The "*" matches any text, which is the location setting of the weather we want
+         */
+        matcher.addURI(authority,
+                WeatherContract.PATH_WEATHER + "/" + WeatherContract.PATH_LOCATION + "/*",
+                CODE_WEATHER_WITH_LOCATION);
+        matcher.addURI(authority,
+                WeatherContract.PATH_WEATHER + "/" + WeatherContract.PATH_LOCATION + "/*/#",
+                CODE_WEATHER_WITH_LOCATION_AND_DATE);
+
+        /* This URI is content://com.example.android.sunshine/location/ */
+        matcher.addURI(authority, WeatherContract.PATH_LOCATION, CODE_LOCATION);
 
         return matcher;
     }
@@ -134,9 +235,11 @@ public class WeatherProvider extends ContentProvider {
      *
      * @param uri    The content:// URI of the insertion request.
      * @param values An array of sets of column_name/value pairs to add to the database.
-     *               This must not be {@code null}.
+     *               This must not be {@code null}. Every row must hold a normalized date and
+     *               the _ID of its location.
      *
      * @return The number of values that were inserted.
+     * @throws IllegalArgumentException If a row's date isn't normalized or it has no location
      */
     @Override
     public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
@@ -145,18 +248,12 @@ public class WeatherProvider extends ContentProvider {
         switch (sUriMatcher.match(uri)) {
 
             case CODE_WEATHER:
-                db.beginTransaction();
                 int rowsInserted = 0;
+                db.beginTransaction();
                 try {
+                    SQLiteStatement insertStatement = getInsertWeatherStatement(db);
                     for (ContentValues value : values) {
-                        long weatherDate =
-                                value.getAsLong(WeatherContract.WeatherEntry.COLUMN_DATE);
-                        if (!SunshineDateUtils.isDateNormalized(weatherDate)) {
-                            throw new IllegalArgumentException("Date must be normalized to insert");
-                        }
-
-                        long _id = db.insert(WeatherContract.WeatherEntry.TABLE_NAME, null, value);
-                        if (_id != -1) {
+                        if (insertWeather(insertStatement, value) != -1) {
                             rowsInserted++;
                         }
                     }
@@ -176,6 +273,359 @@ public class WeatherProvider extends ContentProvider {
         }
     }
 
+    /**
+     * Inserts every row of a ForecastBatch, binding its primitive values straight into the
+     * compiled insert statement. This is the same as {@link #bulkInsert(Uri, ContentValues[])}
+     * without building, boxing and unboxing a ContentValues for every row.
+     *
+     * @param locationSetting The location the rows are for
+     * @param batch           The rows to insert
+     * @return The number of rows that were inserted
+     */
+    private int bulkInsertBatch(String locationSetting, ForecastBatch batch) {
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+
+        int rowsInserted = 0;
+        db.beginTransaction();
+        try {
+            long locationId = storeLocation(db, locationSetting, batch);
+            SQLiteStatement insertStatement = getInsertWeatherStatement(db);
+            for (int row = 0; row < batch.size(); row++) {
+                if (insertWeather(insertStatement, batch, row, locationId) != -1) {
+                    rowsInserted++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        /*
+         * Only the observers of this location need to know, observers of all the weather are
+         * still told, as they are registered for descendants
+         */
+        if (rowsInserted > 0) {
+            getContext().getContentResolver().notifyChange(
+                    WeatherContract.WeatherEntry.buildWeatherUriWithLocation(locationSetting),
+                    null);
+        }
+
+        return rowsInserted;
+    }
+
+    /**
+     * Looks up the location with the given setting, adding it if it isn't stored yet, and
+     * records the coordinates the weather server reported for it along with a forecast.
+     *
+     * @param db              The writable database, which must be in a transaction
+     * @param locationSetting The location setting of the forecast
+     * @param forecast        The forecast, holding the coordinates of the location
+     * @return The _ID of the location
+     */
+    private static long storeLocation(SQLiteDatabase db, String locationSetting,
+                                      ForecastBatch forecast) {
+        ContentValues locationValues = new ContentValues();
+        locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT,
+                forecast.getCoordLat());
+        locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG,
+                forecast.getCoordLong());
+
+        String[] locationSettingArgs = new String[]{locationSetting};
+        Cursor cursor = db.query(WeatherContract.LocationEntry.TABLE_NAME,
+                new String[]{WeatherContract.LocationEntry._ID},
+                WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
+                locationSettingArgs,
+                null, null, null);
+        try {
+            if (cursor.moveToFirst()) {
+                long locationId = cursor.getLong(0);
+                db.update(WeatherContract.LocationEntry.TABLE_NAME,
+                        locationValues,
+                        WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
+                        locationSettingArgs);
+                return locationId;
+            }
+        } finally {
+            cursor.close();
+        }
+
+        locationValues.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+        return db.insertOrThrow(WeatherContract.LocationEntry.TABLE_NAME, null, locationValues);
+    }
+
+    /**
+     * Returns the compiled insert statement, compiling it the first time it's needed.
+     *
+     * @param db The writable database, which must be in a transaction
+     * @return The statement for SQL_INSERT_WEATHER
+     */
+    private SQLiteStatement getInsertWeatherStatement(SQLiteDatabase db) {
+        if (mInsertWeatherStatement == null) {
+            mInsertWeatherStatement = db.compileStatement(SQL_INSERT_WEATHER);
+        }
+        return mInsertWeatherStatement;
+    }
+
+    /**
+     * Returns the compiled update statement, compiling it the first time it's needed.
+     *
+     * @param db The writable database, which must be in a transaction
+     * @return The statement for SQL_UPDATE_WEATHER
+     */
+    private SQLiteStatement getUpdateWeatherStatement(SQLiteDatabase db) {
+        if (mUpdateWeatherStatement == null) {
+            mUpdateWeatherStatement = db.compileStatement(SQL_UPDATE_WEATHER);
+        }
+        return mUpdateWeatherStatement;
+    }
+
+    /**
+     * Inserts a single day of weather given as ContentValues.
+     *
+     * @return The row ID of the inserted row, or -1 if it failed
+     */
+    private static long insertWeather(SQLiteStatement insertStatement, ContentValues value) {
+        long weatherDate = value.getAsLong(WeatherContract.WeatherEntry.COLUMN_DATE);
+        if (!SunshineDateUtils.isDateNormalized(weatherDate)) {
+            throw new IllegalArgumentException("Date must be normalized to insert");
+        }
+
+        insertStatement.bindLong(1, weatherDate);
+
+        Long weatherId = value.getAsLong(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID);
+        if (weatherId == null) {
+            insertStatement.bindNull(2);
+        } else {
+            insertStatement.bindLong(2, weatherId);
+        }
+
+        /* Everything in between the weather ID and the location is a REAL column */
+        int locationIndex = INSERT_COLUMNS.length;
+        for (int i = 2; i < locationIndex - 1; i++) {
+            Double columnValue = value.getAsDouble(INSERT_COLUMNS[i]);
+            if (columnValue == null) {
+                insertStatement.bindNull(i + 1);
+            } else {
+                insertStatement.bindDouble(i + 1, columnValue);
+            }
+        }
+
+        Long locationId = value.getAsLong(WeatherContract.WeatherEntry.COLUMN_LOC_KEY);
+        if (locationId == null) {
+            throw new IllegalArgumentException("Location key must be given to insert");
+        }
+        insertStatement.bindLong(locationIndex, locationId);
+
+        /* Just like SQLiteDatabase#insert, a row that breaks a constraint is skipped */
+        try {
+            return insertStatement.executeInsert();
+        } catch (SQLiteConstraintException e) {
+            Log.e(TAG, "Error inserting " + value, e);
+            return -1;
+        }
+    }
+
+    /**
+     * Inserts a single day of weather taken from a row of a ForecastBatch.
+     *
+     * @return The row ID of the inserted row, or -1 if it failed
+     */
+    private static long insertWeather(SQLiteStatement insertStatement, ForecastBatch batch, int row,
+                                      long locationId) {
+        long weatherDate = batch.getDate(row);
+        if (!SunshineDateUtils.isDateNormalized(weatherDate)) {
+            throw new IllegalArgumentException("Date must be normalized to insert");
+        }
+
+        insertStatement.bindLong(1, weatherDate);
+        insertStatement.bindLong(2, batch.getWeatherId(row));
+        insertStatement.bindDouble(3, batch.getMinTemp(row));
+        insertStatement.bindDouble(4, batch.getMaxTemp(row));
+        insertStatement.bindDouble(5, batch.getHumidity(row));
+        insertStatement.bindDouble(6, batch.getPressure(row));
+        insertStatement.bindDouble(7, batch.getWindSpeed(row));
+        insertStatement.bindDouble(8, batch.getDegrees(row));
+        insertStatement.bindLong(9, locationId);
+
+        /* As with the ContentValues version, a row that breaks a constraint is skipped */
+        try {
+            return insertStatement.executeInsert();
+        } catch (SQLiteConstraintException e) {
+            Log.e(TAG, "Error inserting day " + row + " of the batch", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Handles provider specific methods that don't map onto query, insert, update or delete. In
+     * Sunshine these are {@link WeatherContract.WeatherEntry#METHOD_SYNC_WEATHER}, which replaces
+     * the stored forecast with a new one, and
+     * {@link WeatherContract.WeatherEntry#METHOD_BULK_INSERT_BATCH}, which inserts a
+     * ForecastBatch.
+     *
+     * @param method The method name to call
+     * @param arg    The location setting the forecast is for
+     * @param extras The arguments of the method
+     * @return The result of the method, or null if the method isn't known
+     */
+    @Override
+    public Bundle call(@NonNull String method, String arg, Bundle extras) {
+        if (WeatherContract.WeatherEntry.METHOD_SYNC_WEATHER.equals(method)) {
+            if (arg == null) {
+                throw new IllegalArgumentException("A location setting is required to sync");
+            }
+
+            Bundle result = new Bundle();
+            result.putInt(WeatherContract.WeatherEntry.EXTRA_ROWS_CHANGED,
+                    syncWeather(arg, ForecastBatch.readFromBundle(extras)));
+            return result;
+        } else if (WeatherContract.WeatherEntry.METHOD_BULK_INSERT_BATCH.equals(method)) {
+            if (arg == null) {
+                throw new IllegalArgumentException("A location setting is required to insert");
+            }
+
+            Bundle result = new Bundle();
+            result.putInt(WeatherContract.WeatherEntry.EXTRA_ROWS_INSERTED,
+                    bulkInsertBatch(arg, ForecastBatch.readFromBundle(extras)));
+            return result;
+        }
+        return super.call(method, arg, extras);
+    }
+
+    /**
+     * Makes the weather table hold exactly the given forecast for one location, while touching as
+     * few rows as possible. The weather of other locations is left alone. Days that are stored but aren't part of the new forecast (such as days that are
+     * now in the past) are deleted, new days are inserted and days whose forecast changed are
+     * updated. Days that are unchanged aren't written at all.
+     * <p>
+     * All of this happens in a single transaction, and observers are notified once at the end,
+     * and only if something actually changed. The stored days are read into a ForecastBatch as
+     * well, so the comparison is done on primitives and no ContentValues are built along the way.
+     *
+     * @param locationSetting The location the forecast is for
+     * @param forecast        The new forecast, one row per day
+     * @return The number of rows that were inserted, updated or deleted
+     */
+    private int syncWeather(String locationSetting, ForecastBatch forecast) {
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+
+        int rowsChanged = 0;
+        db.beginTransaction();
+        try {
+            long locationId = storeLocation(db, locationSetting, forecast);
+            String[] locationIdArgs = new String[]{Long.toString(locationId)};
+
+            /* Load what we currently have stored, sorted by date so it can be searched */
+            ForecastBatch storedDays;
+            Cursor cursor = db.query(WeatherContract.WeatherEntry.TABLE_NAME,
+                    INSERT_COLUMNS, LOCATION_ID_SELECTION, locationIdArgs, null, null,
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+            try {
+                storedDays = new ForecastBatch(cursor.getCount());
+                while (cursor.moveToNext()) {
+                    storedDays.add(cursor.getLong(0),
+                            cursor.getInt(1),
+                            cursor.getDouble(2),
+                            cursor.getDouble(3),
+                            cursor.getDouble(4),
+                            cursor.getDouble(5),
+                            cursor.getDouble(6),
+                            cursor.getDouble(7));
+                }
+            } finally {
+                cursor.close();
+            }
+
+            /* Stored days that are also part of the new forecast, and so must not be deleted */
+            boolean[] keptDays = new boolean[storedDays.size()];
+
+            for (int row = 0; row < forecast.size(); row++) {
+                long weatherDate = forecast.getDate(row);
+                if (!SunshineDateUtils.isDateNormalized(weatherDate)) {
+                    throw new IllegalArgumentException("Date must be normalized to insert");
+                }
+
+                int storedRow = storedDays.indexOfDate(weatherDate);
+                if (storedRow < 0) {
+                    if (insertWeather(getInsertWeatherStatement(db), forecast, row,
+                            locationId) != -1) {
+                        rowsChanged++;
+                    }
+                } else {
+                    keptDays[storedRow] = true;
+                    if (!isSameForecast(storedDays, storedRow, forecast, row)) {
+                        rowsChanged += updateWeather(getUpdateWeatherStatement(db), forecast, row,
+                                locationId);
+                    }
+                }
+            }
+
+            /* Whatever is left isn't part of the new forecast anymore */
+            for (int storedRow = 0; storedRow < keptDays.length; storedRow++) {
+                if (!keptDays[storedRow]) {
+                    rowsChanged += db.delete(WeatherContract.WeatherEntry.TABLE_NAME,
+                            WeatherContract.WeatherEntry.COLUMN_DATE + " = ? AND "
+                                    + LOCATION_ID_SELECTION,
+                            new String[]{
+                                    Long.toString(storedDays.getDate(storedRow)),
+                                    locationIdArgs[0]});
+                }
+            }
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        /* As in bulkInsertBatch, the other locations' observers aren't woken */
+        if (rowsChanged > 0) {
+            getContext().getContentResolver().notifyChange(
+                    WeatherContract.WeatherEntry.buildWeatherUriWithLocation(locationSetting),
+                    null);
+        }
+
+        return rowsChanged;
+    }
+
+    /**
+     * Rewrites the stored forecast of a location for the date of a row of a ForecastBatch.
+     *
+     * @return The number of rows that were updated
+     */
+    private static int updateWeather(SQLiteStatement updateStatement, ForecastBatch batch, int row,
+                                     long locationId) {
+        updateStatement.bindLong(1, batch.getWeatherId(row));
+        updateStatement.bindDouble(2, batch.getMinTemp(row));
+        updateStatement.bindDouble(3, batch.getMaxTemp(row));
+        updateStatement.bindDouble(4, batch.getHumidity(row));
+        updateStatement.bindDouble(5, batch.getPressure(row));
+        updateStatement.bindDouble(6, batch.getWindSpeed(row));
+        updateStatement.bindDouble(7, batch.getDegrees(row));
+        updateStatement.bindLong(8, batch.getDate(row));
+        updateStatement.bindLong(9, locationId);
+        return updateStatement.executeUpdateDelete();
+    }
+
+    /**
+     * Compares a stored day against a day from a new forecast, column by column.
+     *
+     * @param storedDays The days as read from the database
+     * @param storedRow  The row of the stored day in storedDays
+     * @param forecast   The new forecast
+     * @param row        The row of the new day in forecast
+     * @return true if none of the forecast columns differ
+     */
+    private static boolean isSameForecast(ForecastBatch storedDays, int storedRow,
+                                          ForecastBatch forecast, int row) {
+        return storedDays.getWeatherId(storedRow) == forecast.getWeatherId(row)
+                && Double.compare(storedDays.getMinTemp(storedRow), forecast.getMinTemp(row)) == 0
+                && Double.compare(storedDays.getMaxTemp(storedRow), forecast.getMaxTemp(row)) == 0
+                && Double.compare(storedDays.getHumidity(storedRow), forecast.getHumidity(row)) == 0
+                && Double.compare(storedDays.getPressure(storedRow), forecast.getPressure(row)) == 0
+                && Double.compare(storedDays.getWindSpeed(storedRow), forecast.getWindSpeed(row)) == 0
+                && Double.compare(storedDays.getDegrees(storedRow), forecast.getDegrees(row)) == 0;
+    }
+
     /**
      * Handles query requests from clients. We will use this method in Sunshine to query for all
      * of our weather data as well as to query for the weather on a particular day.
@@ -204,55 +654,42 @@ public class WeatherProvider extends ContentProvider {
         switch (sUriMatcher.match(uri)) {
 
             /*
-             * When sUriMatcher's match method is called with a URI that looks something like this
-             *
-             *      content://com.example.android.sunshine/weather/1472214172
-             *
-             * sUriMatcher's match method will return the code that indicates to us that we need
-             * to return the weather for a particular date. The date in this code is encoded in
-             * milliseconds and is at the very end of the URI (1472214172) and can be accessed
-             * programmatically using Uri's getLastPathSegment method.
-             *
-             * In this case, we want to return a cursor that contains one row of weather data for
-             * a particular date.
+             * A URI such as content://com.example.android.sunshine/weather/location/94043/1472214172
+             * returns the weather of one location on one day. The location setting and the date
+             * are passed to the selection as arguments, the setting being looked up in the
+             * location table with a sub-query.
+             */
+            case CODE_WEATHER_WITH_LOCATION_AND_DATE: {
+                String[] selectionArguments = new String[]{
+                        WeatherContract.WeatherEntry.getLocationSettingFromUri(uri),
+                        uri.getLastPathSegment()};
+
+                cursor = mOpenHelper.getReadableDatabase().query(
+                        WeatherContract.WeatherEntry.TABLE_NAME,
+                        projection,
+                        LOCATION_SETTING_WITH_DATE_SELECTION,
+                        selectionArguments,
+                        null,
+                        null,
+                        sortOrder);
+
+                break;
+            }
+
+            /*
+             * A URI such as content://com.example.android.sunshine/weather/location/94043
+             * returns the weather of one location. Any selection given by the caller, such as
+             * "today onwards", is applied on top of the location.
              */
-            case CODE_WEATHER_WITH_DATE: {
-
-                /*
-                 * In order to determine the date associated with this URI, we look at the last
-                 * path segment. In the comment above, the last path segment is 1472214172 and
-                 * represents the number of seconds since the epoch, or UTC time.
-                 */
-                String normalizedUtcDateString = uri.getLastPathSegment();
-
-                /*
-                 * The query method accepts a string array of arguments, as there may be more
-                 * than one "?" in the selection statement. Even though in our case, we only have
-                 * one "?", we have to create a string array that only contains one element
-                 * because this method signature accepts a string array.
-                 */
-                String[] selectionArguments = new String[]{normalizedUtcDateString};
+            case CODE_WEATHER_WITH_LOCATION: {
+                String[] selectionArguments = DatabaseUtils.appendSelectionArgs(
+                        new String[]{WeatherContract.WeatherEntry.getLocationSettingFromUri(uri)},
+                        selectionArgs);
 
                 cursor = mOpenHelper.getReadableDatabase().query(
-                        /* Table we are going to query */
                         WeatherContract.WeatherEntry.TABLE_NAME,
-                        /*
-                         * A projection designates the columns we want returned in our Cursor.
-                         * Passing null will return all columns of data within the Cursor.
-                         * However, if you don't need all the data from the table, it's best
-                         * practice to limit the columns returned in the Cursor with a projection.
-                         */
                         projection,
-                        /*
-                         * The URI that matches CODE_WEATHER_WITH_DATE contains a date at the end
-                         * of it. We extract that date and use it with these next two lines to
-                         * specify the row of weather we want returned in the cursor. We use a
-                         * question mark here and then designate selectionArguments as the next
-                         * argument for performance reasons. Whatever Strings are contained
-                         * within the selectionArguments array will be inserted into the
-                         * selection statement by SQLite under the hood.
-                         */
-                        WeatherContract.WeatherEntry.COLUMN_DATE + " = ? ",
+                        DatabaseUtils.concatenateWhere(LOCATION_SETTING_SELECTION, selection),
                         selectionArguments,
                         null,
                         null,
@@ -261,6 +698,20 @@ public class WeatherProvider extends ContentProvider {
                 break;
             }
 
+            /* content://com.example.android.sunshine/location/ returns every stored location */
+            case CODE_LOCATION: {
+                cursor = mOpenHelper.getReadableDatabase().query(
+                        WeatherContract.LocationEntry.TABLE_NAME,
+                        projection,
+                        selection,
+                        selectionArgs,
+                        null,
+                        null,
+                        sortOrder);
+
+                break;
+            }
+
             /*
              * When sUriMatcher's match method is called with a URI that looks EXACTLY like this
              *
@@ -326,6 +777,10 @@ public class WeatherProvider extends ContentProvider {
 
                 break;
 
+            case CODE_LOCATION:
+                numRowsDeleted = deleteLocations(selection, selectionArgs);
+                break;
+
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
@@ -338,6 +793,43 @@ public class WeatherProvider extends ContentProvider {
         return numRowsDeleted;
     }
 
+    /**
+     * Deletes locations along with all of their weather, in one transaction. The weather
+     * observers are notified separately, as the location URI isn't a parent of theirs.
+     *
+     * @param selection     Restriction on the location table, "1" for every location
+     * @param selectionArgs Used in conjunction with the selection statement
+     * @return The number of locations deleted
+     */
+    private int deleteLocations(String selection, String[] selectionArgs) {
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+
+        int weatherRowsDeleted;
+        int locationsDeleted;
+        db.beginTransaction();
+        try {
+            weatherRowsDeleted = db.delete(WeatherContract.WeatherEntry.TABLE_NAME,
+                    WeatherContract.WeatherEntry.COLUMN_LOC_KEY + " IN (SELECT "
+                            + WeatherContract.LocationEntry._ID
+                            + " FROM " + WeatherContract.LocationEntry.TABLE_NAME
+                            + " WHERE " + selection + ")",
+                    selectionArgs);
+            locationsDeleted = db.delete(WeatherContract.LocationEntry.TABLE_NAME,
+                    selection,
+                    selectionArgs);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        if (weatherRowsDeleted != 0) {
+            getContext().getContentResolver()
+                    .notifyChange(WeatherContract.WeatherEntry.CONTENT_URI, null);
+        }
+
+        return locationsDeleted;
+    }
+
     /**
      * In Sunshine, we aren't going to do anything with this method. However, we are required to
      * override it as WeatherProvider extends ContentProvider and getType is an abstract method in
@@ -383,7 +875,24 @@ public class WeatherProvider extends ContentProvider {
     @Override
     @TargetApi(11)
     public void shutdown() {
+        if (mInsertWeatherStatement != null) {
+            mInsertWeatherStatement.close();
+            mInsertWeatherStatement = null;
+        }
+        if (mUpdateWeatherStatement != null) {
+            mUpdateWeatherStatement.close();
+            mUpdateWeatherStatement = null;
+        }
         mOpenHelper.close();
         super.shutdown();
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes the records of the last syncs, so they can be read with
+     * adb shell dumpsys activity provider com.jacko1972.android.sunshinewear/.data.WeatherProvider
+     */
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        SyncTelemetry.dump(writer);
+    }
+}
@@ -3,6 +3,7 @@ package com.jacko1972.android.sunshinewear.listener;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.text.format.DateUtils;
 import android.util.Log;
 
 import com.google.android.gms.common.ConnectionResult;
@@ -15,10 +16,15 @@ import com.google.android.gms.wearable.DataMapItem;
 import com.google.android.gms.wearable.Wearable;
 import com.google.android.gms.wearable.WearableListenerService;
 import com.jacko1972.android.sunshinewear.R;
+import com.jacko1972.android.sunshinewear.data.SunshinePreferences;
+import com.jacko1972.android.sunshinewear.sync.SunshineSyncCoordinator;
 import com.jacko1972.android.sunshinewear.sync.SunshineSyncTask;
+import com.jacko1972.android.sunshinewear.sync.SunshineSyncUtils;
 
 public class WearListenerService extends WearableListenerService implements DataApi.DataListener, GoogleApiClient.ConnectionCallbacks, GoogleApiClient.OnConnectionFailedListener {
 
+    private static final String TAG = "WearListenerService";
+
     private GoogleApiClient googleApiClient;
 
     @Override
@@ -41,14 +47,44 @@ public class WearListenerService extends WearableListenerService implements Data
 
     @Override
     public void onDataChanged(DataEventBuffer dataEventBuffer) {
+        boolean weatherRequested = false;
         for (DataEvent event : dataEventBuffer) {
             if (event.getType() == DataEvent.TYPE_CHANGED) {
                 String dataMapPath = event.getDataItem().getUri().getPath();
                 if (dataMapPath.equals(this.getString(R.string.sunshine_weather_update_path))) {
-                    SunshineSyncTask.syncWeather(this);
+                    weatherRequested = true;
                 }
             }
         }
+
+        /* However many requests arrived together, they are all answered by one refresh */
+        if (weatherRequested) {
+            refreshWatchFace();
+        }
+    }
+
+    /**
+     * Answers a request for weather from the watch face. If our stored weather is younger than
+     * the watch_refresh_ttl_minutes setting, and was synced for the location that is still
+     * preferred, the watch face is sent that. Otherwise we sync, or
+     * join the sync already running, which sends the watch face the weather once it is done.
+     */
+    private void refreshWatchFace() {
+        /* Someone is looking at the watch face, so keep the weather fresher for a while */
+        SunshineSyncUtils.recordUserActivity(this);
+
+        long ttlMillis = getResources().getInteger(R.integer.watch_refresh_ttl_minutes)
+                * DateUtils.MINUTE_IN_MILLIS;
+        String locationSetting = SunshinePreferences.getPreferredWeatherLocation(this);
+        long timeSinceLastSync =
+                SunshinePreferences.getEllapsedTimeSinceLastSync(this, locationSetting);
+        if (timeSinceLastSync >= 0 && timeSinceLastSync < ttlMillis) {
+            Log.d(TAG, "Stored weather is fresh, sending it to the watch face");
+            SunshineSyncTask.sendStoredWeatherDataToWatchFace(this);
+            return;
+        }
+
+        SunshineSyncCoordinator.syncAndWait(this);
     }
 
     @Override
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear.sync;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how often the weather should be synced in the background.
+ * <p>
+ * We start out syncing every BASE_INTERVAL hours. Every sync that finds the forecast unchanged
+ * doubles the interval, up to MAX_INTERVAL, and a sync that finds a new forecast brings it back
+ * to BASE_INTERVAL. On top of that, the interval is narrowed to MIN_INTERVAL for a while after the
+ * user has looked at the weather, in the app or on the watch face, and widened to MAX_INTERVAL
+ * once nobody has looked at it for a day.
+ * <p>
+ * The policy only does arithmetic on the times it is given, so it can be replayed against made
+ * up events as well as driven by the real clock. SunshineSyncUtils keeps it in the preferences
+ * and reschedules the sync job whenever the interval it returns changes.
+ */
+public final class AdaptiveSyncPolicy {
+
+    static final long MIN_INTERVAL_SECONDS = TimeUnit.HOURS.toSeconds(1);
+    static final long BASE_INTERVAL_SECONDS = TimeUnit.HOURS.toSeconds(3);
+    static final long MAX_INTERVAL_SECONDS = TimeUnit.HOURS.toSeconds(12);
+
+    /* How long after the user last looked at the weather we keep syncing at MIN_INTERVAL */
+    static final long ACTIVE_WINDOW_MILLIS = TimeUnit.HOURS.toMillis(2);
+
+    /* How long nobody has to look at the weather before we only sync at MAX_INTERVAL */
+    static final long IDLE_AFTER_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /* The interval the sync results alone call for, before user activity is considered */
+    private long mBackoffIntervalSeconds;
+
+    /* When the user last looked at the weather, or 0 if we don't know */
+    private long mLastUserActivityMillis;
+
+    /**
+     * Restores a policy, from the values its getters returned.
+     *
+     * @param backoffIntervalSeconds See {@link #getBackoffIntervalSeconds()}
+     * @param lastUserActivityMillis See {@link #getLastUserActivityMillis()}
+     */
+    public AdaptiveSyncPolicy(long backoffIntervalSeconds, long lastUserActivityMillis) {
+        mBackoffIntervalSeconds = Math.max(BASE_INTERVAL_SECONDS,
+                Math.min(MAX_INTERVAL_SECONDS, backoffIntervalSeconds));
+        mLastUserActivityMillis = lastUserActivityMillis;
+    }
+
+    /**
+     * @return The policy of a fresh install: the base interval, and no user activity seen yet
+     */
+    public static AdaptiveSyncPolicy createDefault() {
+        return new AdaptiveSyncPolicy(BASE_INTERVAL_SECONDS, 0);
+    }
+
+    /**
+     * Widens or resets the interval depending on what a sync found.
+     *
+     * @param outcome How the sync went
+     */
+    public void onSyncFinished(SunshineSyncCoordinator.Outcome outcome) {
+        switch (outcome) {
+            case UNCHANGED:
+                mBackoffIntervalSeconds = Math.min(MAX_INTERVAL_SECONDS,
+                        mBackoffIntervalSeconds * 2);
+                break;
+            case UPDATED:
+                mBackoffIntervalSeconds = BASE_INTERVAL_SECONDS;
+                break;
+            default:
+                /* A failed or cancelled sync tells us nothing about the forecast */
+                break;
+        }
+    }
+
+    /**
+     * Records that the user has looked at the weather.
+     *
+     * @param nowMillis The current time (in UNIX time)
+     */
+    public void onUserActivity(long nowMillis) {
+        mLastUserActivityMillis = nowMillis;
+    }
+
+    /**
+     * Returns how long to wait before the next sync.
+     *
+     * @param nowMillis The current time (in UNIX time)
+     * @return The interval in seconds
+     */
+    public long getIntervalSeconds(long nowMillis) {
+        if (mLastUserActivityMillis > 0) {
+            long timeSinceActivity = nowMillis - mLastUserActivityMillis;
+            if (timeSinceActivity >= 0 && timeSinceActivity < ACTIVE_WINDOW_MILLIS) {
+                return MIN_INTERVAL_SECONDS;
+            }
+            if (timeSinceActivity >= IDLE_AFTER_MILLIS) {
+                return MAX_INTERVAL_SECONDS;
+            }
+        }
+        return mBackoffIntervalSeconds;
+    }
+
+    public long getBackoffIntervalSeconds() {
+        return mBackoffIntervalSeconds;
+    }
+
+    public long getLastUserActivityMillis() {
+        return mLastUserActivityMillis;
+    }
+}
@@ -23,11 +23,15 @@ import com.firebase.jobdispatcher.JobParameters;
 import com.firebase.jobdispatcher.JobService;
 import com.firebase.jobdispatcher.RetryStrategy;
 
+import java.util.concurrent.Future;
 
 public class SunshineFirebaseJobService extends JobService {
 
     private AsyncTask<Void, Void, Void> mFetchWeatherTask;
 
+    /* This job's request for a sync, which may be shared with other callers */
+    private Future<SunshineSyncCoordinator.Outcome> mSyncRequest;
+
     /**
      * The entry point to your Job. Implementations should offload work to another thread of
      * execution as soon as possible.
@@ -41,12 +45,20 @@ public class SunshineFirebaseJobService extends JobService {
     @Override
     public boolean onStartJob(final JobParameters jobParameters) {
 
+        Context context = getApplicationContext();
+        final Future<SunshineSyncCoordinator.Outcome> syncRequest =
+                SunshineSyncCoordinator.requestSync(context);
+        mSyncRequest = syncRequest;
+
         mFetchWeatherTask = new AsyncTask<Void, Void, Void>() {
             @Override
             protected Void doInBackground(Void... voids) {
-                Context context = getApplicationContext();
-                SunshineSyncTask.syncWeather(context);
-                jobFinished(jobParameters, false);
+                /* Wait for the sync, which may already have been running for someone else */
+                try {
+                    syncRequest.get();
+                } catch (Exception e) {
+                    /* Logged by the sync itself, or the job was stopped */
+                }
                 return null;
             }
 
@@ -70,6 +82,10 @@ public class SunshineFirebaseJobService extends JobService {
      */
     @Override
     public boolean onStopJob(JobParameters jobParameters) {
+        /* Only cancels the sync itself if no one else is waiting for it */
+        if (mSyncRequest != null) {
+            mSyncRequest.cancel(true);
+        }
         if (mFetchWeatherTask != null) {
             mFetchWeatherTask.cancel(true);
         }
@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear.sync;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.jacko1972.android.sunshinewear.data.SunshinePreferences;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs weather syncs one at a time, and shares a sync between everyone who asks for it while it
+ * is waiting or running. The job service, the intent service and the watch face listener all
+ * sync through here, so a sync asked for from several places at once only downloads the forecast
+ * once, and each caller gets the result of that one sync.
+ * <p>
+ * A sync is only shared between requests made for the same locations. If the user changes their
+ * locations while a sync is running, the next request starts a new sync, which runs once the
+ * current one is done.
+ * <p>
+ * Every request gets a Future of its own. Cancelling it takes the request out of the sync, and
+ * the sync itself is only cancelled once no request is left waiting for it.
+ */
+public final class SunshineSyncCoordinator {
+
+    private static final String TAG = "SunshineSyncCoordinator";
+
+    /**
+     * How a sync went, as far as the user's preferred location is concerned.
+     */
+    public enum Outcome {
+        /* A new forecast was stored */
+        UPDATED,
+        /* The server told us the stored forecast is still current */
+        UNCHANGED,
+        /* The forecast couldn't be downloaded or parsed */
+        FAILED,
+        /* The sync was cancelled before it finished */
+        CANCELLED
+    }
+
+    private static final long SYNC_THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    /* Syncs run one at a time, on a thread that is let go once it has been idle for a while */
+    private static final ThreadPoolExecutor sSyncExecutor = new ThreadPoolExecutor(
+            1,
+            1,
+            SYNC_THREAD_KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>());
+
+    static {
+        sSyncExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /* The newest sync that hasn't finished yet, or null, guarded by the class */
+    private static SharedSync sPendingSync;
+
+    private SunshineSyncCoordinator() {
+    }
+
+    /**
+     * Asks for the weather to be synced. If a sync of the same locations is waiting or running,
+     * this request joins it, otherwise a new sync is started. This never blocks.
+     *
+     * @param context Used to read the locations to sync, only its application Context is kept
+     * @return The Future of this request
+     */
+    public static Future<Outcome> requestSync(Context context) {
+        Context appContext = context.getApplicationContext();
+        String locationsKey = TextUtils.join(";",
+                SunshinePreferences.getWeatherLocations(appContext));
+
+        synchronized (SunshineSyncCoordinator.class) {
+            if (sPendingSync == null || !sPendingSync.mLocationsKey.equals(locationsKey)) {
+                sPendingSync = new SharedSync(appContext, locationsKey);
+                sSyncExecutor.execute(sPendingSync);
+            } else {
+                Log.d(TAG, "Joining the sync already in flight");
+            }
+            return sPendingSync.join();
+        }
+    }
+
+    /**
+     * Asks for the weather to be synced and waits for the result. If the waiting thread is
+     * interrupted, the request is cancelled.
+     *
+     * @param context Used to read the locations to sync
+     * @return How the sync went
+     */
+    public static Outcome syncAndWait(Context context) {
+        Future<Outcome> request = requestSync(context);
+        try {
+            return request.get();
+        } catch (InterruptedException e) {
+            request.cancel(true);
+            Thread.currentThread().interrupt();
+            return Outcome.CANCELLED;
+        } catch (CancellationException e) {
+            return Outcome.CANCELLED;
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Sync failed", e.getCause());
+            return Outcome.FAILED;
+        }
+    }
+
+    /**
+     * One run of SunshineSyncTask#syncWeather, along with the requests waiting for it.
+     */
+    private static final class SharedSync extends FutureTask<Outcome> {
+
+        private final String mLocationsKey;
+
+        /* Every request ever joined, guarded by SunshineSyncCoordinator.class */
+        private final List<Request> mRequests = new ArrayList<>();
+
+        /* Requests that haven't been cancelled, guarded by SunshineSyncCoordinator.class */
+        private int mRequestCount;
+
+        SharedSync(final Context context, String locationsKey) {
+            super(new Callable<Outcome>() {
+                @Override
+                public Outcome call() throws Exception {
+                    Outcome outcome = SunshineSyncTask.syncWeather(context);
+                    SunshineSyncUtils.recordSyncOutcome(context, outcome);
+                    return outcome;
+                }
+            });
+            mLocationsKey = locationsKey;
+        }
+
+        /**
+         * Adds a request to this sync. Must be called holding the class lock.
+         */
+        Request join() {
+            mRequestCount++;
+            Request request = new Request(this);
+            mRequests.add(request);
+            return request;
+        }
+
+        /**
+         * Takes a cancelled request out of this sync, and cancels the sync if it was the last
+         * one.
+         *
+         * @param mayInterruptIfRunning Whether the sync may be interrupted if it is running
+         */
+        void leave(boolean mayInterruptIfRunning) {
+            synchronized (SunshineSyncCoordinator.class) {
+                mRequestCount--;
+                if (mRequestCount == 0) {
+                    Log.d(TAG, "No one is waiting for the sync any more, cancelling it");
+                    cancel(mayInterruptIfRunning);
+                }
+            }
+        }
+
+        @Override
+        protected void done() {
+            List<Request> requests;
+            synchronized (SunshineSyncCoordinator.class) {
+                if (sPendingSync == this) {
+                    sPendingSync = null;
+                }
+                /* No request can join once this is no longer the pending sync */
+                requests = new ArrayList<>(mRequests);
+            }
+            for (Request request : requests) {
+                request.complete();
+            }
+        }
+    }
+
+    /**
+     * The Future handed to each caller of requestSync. It completes either when the shared sync
+     * does, or when it is cancelled itself, so a caller blocked in get() is woken by a cancel
+     * from another thread without waiting for the sync.
+     */
+    private static final class Request implements Future<Outcome> {
+
+        private final SharedSync mSync;
+
+        /* Released once the sync is done, or this request is cancelled */
+        private final CountDownLatch mCompletion = new CountDownLatch(1);
+
+        private volatile boolean mCancelled;
+
+        Request(SharedSync sync) {
+            mSync = sync;
+        }
+
+        void complete() {
+            mCompletion.countDown();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            synchronized (this) {
+                if (mCancelled || isDone()) {
+                    return false;
+                }
+                mCancelled = true;
+            }
+            complete();
+            mSync.leave(mayInterruptIfRunning);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return mCompletion.getCount() == 0;
+        }
+
+        @Override
+        public Outcome get() throws InterruptedException, ExecutionException {
+            mCompletion.await();
+            return getResult();
+        }
+
+        @Override
+        public Outcome get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            if (!mCompletion.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return getResult();
+        }
+
+        /**
+         * Returns the result once this request is complete, which no longer blocks.
+         */
+        private Outcome getResult() throws InterruptedException, ExecutionException {
+            if (mCancelled) {
+                throw new CancellationException();
+            }
+            return mSync.get();
+        }
+    }
+}
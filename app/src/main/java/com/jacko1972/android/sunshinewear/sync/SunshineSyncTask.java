@@ -15,91 +15,168 @@
  */
 package com.jacko1972.android.sunshinewear.sync;
 
-import android.content.ContentResolver;
-import android.content.ContentValues;
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.database.Cursor;
+import android.net.Uri;
 import android.os.Bundle;
-import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
 import android.text.format.DateUtils;
 import android.util.Log;
 
-import com.google.android.gms.common.ConnectionResult;
-import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.api.ResultCallback;
-import com.google.android.gms.wearable.Asset;
-import com.google.android.gms.wearable.DataApi;
 import com.google.android.gms.wearable.DataMap;
 import com.google.android.gms.wearable.PutDataMapRequest;
 import com.google.android.gms.wearable.PutDataRequest;
-import com.google.android.gms.wearable.Wearable;
 import com.jacko1972.android.sunshinewear.R;
+import com.jacko1972.android.sunshinewear.data.ForecastBatch;
 import com.jacko1972.android.sunshinewear.data.SunshinePreferences;
 import com.jacko1972.android.sunshinewear.data.WeatherContract;
+import com.jacko1972.android.sunshinewear.utilities.CountingInputStream;
 import com.jacko1972.android.sunshinewear.utilities.NetworkUtils;
 import com.jacko1972.android.sunshinewear.utilities.NotificationUtils;
 import com.jacko1972.android.sunshinewear.utilities.OpenWeatherJsonUtils;
-import com.jacko1972.android.sunshinewear.utilities.SunshineWeatherUtils;
+import com.jacko1972.android.sunshinewear.utilities.SunshineDateUtils;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class SunshineSyncTask {
 
     private static final String TAG = "SunshineSyncTask";
 
+    /*
+     * Every location is fetched on its own thread, so that a sync takes about as long as the
+     * slowest location rather than all of them added up. The number of threads is bounded so
+     * that a long list of locations doesn't open a connection per location all at once, and the
+     * threads are let go once they have been idle for a while.
+     */
+    private static final int MAX_CONCURRENT_FETCHES = 4;
+    private static final long FETCH_THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    private static final ThreadPoolExecutor sFetchExecutor = new ThreadPoolExecutor(
+            MAX_CONCURRENT_FETCHES,
+            MAX_CONCURRENT_FETCHES,
+            FETCH_THREAD_KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>());
+
+    static {
+        sFetchExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /* Returned by syncLocation when the server told us the stored forecast is still current */
+    static final ForecastBatch NOT_MODIFIED = new ForecastBatch(0);
+
+    /* The columns of today's weather that the watch face displays */
+    private static final String[] WATCH_FACE_WEATHER_PROJECTION = {
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+    };
+
+    private static final int INDEX_MAX_TEMP = 0;
+    private static final int INDEX_MIN_TEMP = 1;
+    private static final int INDEX_WEATHER_ID = 2;
+
+    /* How long a sync waits for the Data Layer connection before leaving the push queued */
+    private static final long WATCH_FACE_CONNECT_TIMEOUT_SECONDS = 10;
+
     /**
-     * Performs the network request for updated weather, parses the JSON from that request, and
-     * inserts the new weather information into our ContentProvider. Will notify the user that new
-     * weather has been loaded if the user hasn't been notified of the weather within the last day
-     * AND they haven't disabled notifications in the preferences screen.
+     * Performs the network requests for updated weather of every location we track, parses the
+     * JSON from those requests, and inserts the new weather information into our
+     * ContentProvider. Will notify the user that new weather has been loaded if the user hasn't
+     * been notified of the weather within the last day AND they haven't disabled notifications in
+     * the preferences screen.
+     * <p>
+     * The locations are fetched concurrently, and each one is stored in its own transaction as
+     * soon as it has been parsed. Only the user's preferred location is sent to the watch face
+     * and can trigger a notification.
+     * <p>
+     * Only {@link SunshineSyncCoordinator} calls this, which makes sure only one sync runs at a
+     * time. If the thread is interrupted, the sync is cancelled: the fetches still running are
+     * cancelled as well, and nothing is sent to the watch face.
      *
      * @param context Used to access utility methods and the ContentResolver
+     * @return How the sync of the preferred location went
      */
-    synchronized public static void syncWeather(Context context) {
+    static SunshineSyncCoordinator.Outcome syncWeather(final Context context) {
 
+        final SyncTelemetry.Record telemetry = SyncTelemetry.begin();
+        SunshineSyncCoordinator.Outcome outcome = SunshineSyncCoordinator.Outcome.FAILED;
         try {
-            /*
-             * The getUrl method will return the URL that we need to get the forecast JSON for the
-             * weather. It will decide whether to create a URL based off of the latitude and
-             * longitude or off of a simple location as a String.
-             */
-            URL weatherRequestUrl = NetworkUtils.getUrl(context);
-
-            /* Use the URL to retrieve the JSON */
-            String jsonWeatherResponse = NetworkUtils.getResponseFromHttpUrl(weatherRequestUrl);
-
-            /* Parse the JSON into a list of weather values */
-            ContentValues[] weatherValues = OpenWeatherJsonUtils
-                    .getWeatherContentValuesFromJson(context, jsonWeatherResponse);
-
-            /*
-             * In cases where our JSON contained an error code, getWeatherContentValuesFromJson
-             * would have returned null. We need to check for those cases here to prevent any
-             * NullPointerExceptions being thrown. We also have no reason to insert fresh data if
-             * there isn't any to insert.
-             */
-            if (weatherValues != null && weatherValues.length != 0) {
-                /* Get a handle on the ContentResolver to delete and insert data */
-                ContentResolver sunshineContentResolver = context.getContentResolver();
-
-                /* Delete old weather data because we don't need to keep multiple days' data */
-                sunshineContentResolver.delete(
-                        WeatherContract.WeatherEntry.CONTENT_URI,
-                        null,
-                        null);
-
-                /* Insert our new weather data into Sunshine's ContentProvider */
-                sunshineContentResolver.bulkInsert(
-                        WeatherContract.WeatherEntry.CONTENT_URI,
-                        weatherValues);
+            /* The preferred location is always the first one */
+            String[] locations = SunshinePreferences.getWeatherLocations(context);
+
+            List<Future<ForecastBatch>> fetches = new ArrayList<>(locations.length);
+            for (int i = 0; i < locations.length; i++) {
+                final String locationSetting = locations[i];
+                final boolean isPreferredLocation = i == 0;
+                fetches.add(sFetchExecutor.submit(new Callable<ForecastBatch>() {
+                    @Override
+                    public ForecastBatch call() throws Exception {
+                        return syncLocation(context, locationSetting, isPreferredLocation,
+                                telemetry);
+                    }
+                }));
+            }
 
+            /* Wait for every location, so that the sync isn't reported done before they are */
+            ForecastBatch forecast = null;
+            for (int i = 0; i < fetches.size(); i++) {
+                try {
+                    ForecastBatch locationForecast = fetches.get(i).get();
+                    if (i == 0) {
+                        forecast = locationForecast;
+                    }
+                } catch (ExecutionException e) {
+                    /* Server probably invalid, the other locations are still worth keeping */
+                    Log.e(TAG, "Error syncing " + locations[i], e.getCause());
+                    telemetry.addFailure(locations[i], e.getCause());
+                } catch (InterruptedException e) {
+                    Log.d(TAG, "Sync cancelled");
+                    for (Future<ForecastBatch> fetch : fetches) {
+                        fetch.cancel(true);
+                    }
+                    Thread.currentThread().interrupt();
+                    outcome = SunshineSyncCoordinator.Outcome.CANCELLED;
+                    return outcome;
+                }
+            }
+
+            /* Locations the user no longer tracks shouldn't take up space in our database */
+            long stageStart = System.nanoTime();
+            deleteUntrackedLocations(context, locations);
+            telemetry.endStage(SyncTelemetry.Stage.DELETE, stageStart);
+
+            if (forecast != null) {
+                /* Either way, what we have stored for the preferred location is now current */
+                SunshinePreferences.saveLastSyncTime(context, locations[0],
+                        System.currentTimeMillis());
+            }
+
+            if (forecast == NOT_MODIFIED) {
+                /*
+                 * Nothing new was stored, but whoever asked for this sync (possibly the watch
+                 * face) still expects to be sent today's weather.
+                 */
+                stageStart = System.nanoTime();
+                sendStoredWeatherDataToWatchFace(context, locations[0]);
+                telemetry.endStage(SyncTelemetry.Stage.WEAR_PUSH, stageStart);
+                outcome = SunshineSyncCoordinator.Outcome.UNCHANGED;
+            } else if (forecast != null) {
                 /*
                  * Finally, after we insert data into the ContentProvider, determine whether or not
                  * we should notify the user that the weather has been refreshed.
                  */
+                stageStart = System.nanoTime();
                 boolean notificationsEnabled = SunshinePreferences.areNotificationsEnabled(context);
 
                 /*
@@ -123,75 +200,312 @@ public class SunshineSyncTask {
                 if (notificationsEnabled && oneDayPassedSinceLastNotification) {
                     NotificationUtils.notifyUserOfNewWeather(context);
                 }
+                telemetry.endStage(SyncTelemetry.Stage.NOTIFY, stageStart);
 
             /* If the code reaches this point, we have successfully performed our sync */
 
                 /*
-                 * Send data from first row of json to watch face
+                 * Send today's weather, the first row of the forecast, to the watch face
                  */
-
-                sendWeatherDataToWatchFace(weatherValues[0], context);
-
+                stageStart = System.nanoTime();
+                sendWeatherDataToWatchFace(context,
+                        forecast.getMaxTemp(0),
+                        forecast.getMinTemp(0),
+                        forecast.getWeatherId(0));
+                telemetry.endStage(SyncTelemetry.Stage.WEAR_PUSH, stageStart);
+                outcome = SunshineSyncCoordinator.Outcome.UPDATED;
             }
 
         } catch (Exception e) {
             /* Server probably invalid */
-            e.printStackTrace();
+            Log.e(TAG, "Sync failed", e);
+            telemetry.addFailure("sync", e);
+        } finally {
+            telemetry.finish(outcome);
         }
+        return outcome;
     }
 
-    private static void sendWeatherDataToWatchFace(ContentValues json, Context context) {
+    /**
+     * Fetches, parses and stores the forecast of a single location. This runs on one of the
+     * fetch threads, so several locations can be in flight at once.
+     *
+     * @param context             Used to access utility methods and the ContentResolver
+     * @param locationSetting     The location to sync
+     * @param isPreferredLocation Whether this is the user's preferred location, whose coordinates
+     *                            are kept in the preferences
+     * @param telemetry           The record of the sync this is part of
+     * @return The new forecast, NOT_MODIFIED if the stored forecast is still current, or null if
+     * the server returned no forecast
+     * @throws IOException If the forecast couldn't be downloaded or parsed
+     */
+    static ForecastBatch syncLocation(Context context, String locationSetting,
+                                      boolean isPreferredLocation,
+                                      SyncTelemetry.Record telemetry) throws IOException {
+        /*
+         * The getUrl method will return the URL that we need to get the forecast JSON for the
+         * weather. It will decide whether to create a URL based off of the latitude and
+         * longitude or off of a simple location as a String.
+         */
+        URL weatherRequestUrl = NetworkUtils.getUrl(context, locationSetting);
 
-        GoogleApiClient googleClient;
-        googleClient = new GoogleApiClient.Builder(context)
-                .addConnectionCallbacks(new GoogleApiClient.ConnectionCallbacks() {
-                    @Override
-                    public void onConnected(@Nullable Bundle bundle) {
-                    }
+        /*
+         * Use the URL to retrieve the JSON and parse it into a batch of weather values as it
+         * streams in, rather than buffering the whole response first. If we still hold the
+         * data from the last response, we only ask for the forecast if it has changed.
+         *
+         * The saved validators only say what the last response was, not that we still have it,
+         * so they are only sent while today's weather of the location is stored. A 304 can then
+         * only ever mean that the weather we have is current.
+         */
+        ForecastBatch forecast;
+        String[] responseValidators;
+        long stageStart = System.nanoTime();
+        boolean hasStoredForecast = hasWeatherForToday(context, locationSetting);
+        HttpURLConnection urlConnection = NetworkUtils.openHttpConnection(weatherRequestUrl);
+        try {
+            if (hasStoredForecast) {
+                NetworkUtils.addConditionalHeaders(context, urlConnection);
+            }
 
-                    @Override
-                    public void onConnectionSuspended(int i) {
-                    }
-                })
-                .addOnConnectionFailedListener(new GoogleApiClient.OnConnectionFailedListener() {
-                    @Override
-                    public void onConnectionFailed(@NonNull ConnectionResult connectionResult) {
-                    }
-                })
-                .addApi(Wearable.API)
-                .build();
+            boolean notModified = NetworkUtils.isNotModified(urlConnection);
+            telemetry.endStage(SyncTelemetry.Stage.FETCH, stageStart);
+            if (notModified) {
+                Log.d(TAG, "Forecast for " + locationSetting + " not modified, keeping stored data");
+                telemetry.addCacheHit();
+                return NOT_MODIFIED;
+            }
 
-        googleClient.connect();
+            responseValidators = NetworkUtils.getResponseValidators(urlConnection);
 
-        double maxTemp = (double) json.get(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP);
-        double minTemp = (double) json.get(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP);
-        int weatherId = (int) json.get(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID);
-        int weatherImageId = SunshineWeatherUtils.getSmallArtResourceIdForWeatherCondition(weatherId);
+            /* Count the bytes as they come over the network, before they are inflated */
+            stageStart = System.nanoTime();
+            CountingInputStream downloaded = new CountingInputStream(urlConnection.getInputStream());
+            InputStream in = NetworkUtils.decodeResponseStream(urlConnection, downloaded);
+            try {
+                forecast = OpenWeatherJsonUtils.getForecastFromJson(context, in);
+            } finally {
+                in.close();
+                telemetry.addBytesDownloaded(downloaded.getCount());
+                telemetry.endStage(SyncTelemetry.Stage.PARSE, stageStart);
+            }
+        } finally {
+            urlConnection.disconnect();
+        }
 
-        Bitmap bitmap = BitmapFactory.decodeResource(context.getResources(), weatherImageId);
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
-        Asset asset = Asset.createFromBytes(stream.toByteArray());
+        /*
+         * In cases where our JSON contained an error code, getForecastFromJson would have
+         * returned null. We need to check for those cases here to prevent any
+         * NullPointerExceptions being thrown. We also have no reason to insert fresh data if
+         * there isn't any to insert.
+         */
+        if (forecast == null || forecast.size() == 0) {
+            return null;
+        }
+
+        if (isPreferredLocation) {
+            SunshinePreferences.setLocationDetails(context,
+                    forecast.getCoordLat(),
+                    forecast.getCoordLong());
+        }
+
+        /*
+         * Replace our stored forecast for this location with the new one. Only days that changed
+         * are written and days no longer in the forecast are removed, all in one transaction, so
+         * our CursorLoaders requery at most once per location.
+         */
+        stageStart = System.nanoTime();
+        Bundle syncExtras = new Bundle();
+        forecast.writeToBundle(syncExtras);
+        Bundle syncResult = context.getContentResolver().call(
+                WeatherContract.WeatherEntry.CONTENT_URI,
+                WeatherContract.WeatherEntry.METHOD_SYNC_WEATHER,
+                locationSetting,
+                syncExtras);
+        telemetry.endStage(SyncTelemetry.Stage.STORE, stageStart);
+        if (syncResult != null) {
+            telemetry.addRowsWritten(
+                    syncResult.getInt(WeatherContract.WeatherEntry.EXTRA_ROWS_CHANGED));
+        }
+
+        if (isPreferredLocation) {
+            /* Lets the next cold start see we have weather without querying for it */
+            SunshinePreferences.saveNewestForecastDate(context, locationSetting,
+                    forecast.getDate(forecast.size() - 1));
+        }
+
+        /* The stored data now matches this response, so remember how to validate it */
+        SunshinePreferences.saveResponseValidators(context,
+                weatherRequestUrl.toString(),
+                responseValidators[0],
+                responseValidators[1]);
+
+        return forecast;
+    }
 
+    /**
+     * Returns whether today's weather of the given location is stored in our ContentProvider.
+     *
+     * @param context         Used to access the ContentResolver
+     * @param locationSetting The location to look for
+     * @return true if there is a row of weather for the location today
+     */
+    private static boolean hasWeatherForToday(Context context, String locationSetting) {
+        Uri todaysWeatherUri = WeatherContract.WeatherEntry.buildWeatherUriWithLocationAndDate(
+                locationSetting, SunshineDateUtils.getNormalizedUtcDateForToday());
+        Cursor cursor = context.getContentResolver().query(
+                todaysWeatherUri,
+                new String[]{WeatherContract.WeatherEntry._ID},
+                null,
+                null,
+                null);
+
+        if (cursor == null) {
+            return false;
+        }
+
+        try {
+            return cursor.getCount() > 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Deletes every stored location, along with its weather, that isn't one of the given ones.
+     * What the preferences remember about the weather of those locations goes with it, so that
+     * a location that is added back is downloaded in full.
+     *
+     * @param context   Used to access the ContentResolver
+     * @param locations The locations to keep
+     */
+    static void deleteUntrackedLocations(Context context, String[] locations) {
+        StringBuilder selection = new StringBuilder(
+                WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " NOT IN (");
+        for (int i = 0; i < locations.length; i++) {
+            selection.append(i == 0 ? "?" : ", ?");
+        }
+        selection.append(')');
+
+        Cursor untrackedCursor = context.getContentResolver().query(
+                WeatherContract.LocationEntry.CONTENT_URI,
+                new String[]{WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING},
+                selection.toString(),
+                locations,
+                null);
+
+        if (untrackedCursor == null) {
+            return;
+        }
+
+        try {
+            if (untrackedCursor.getCount() == 0) {
+                return;
+            }
+            while (untrackedCursor.moveToNext()) {
+                String locationSetting = untrackedCursor.getString(0);
+                URL weatherRequestUrl = NetworkUtils.getUrl(context, locationSetting);
+                if (weatherRequestUrl != null) {
+                    SunshinePreferences.resetResponseValidators(context,
+                            weatherRequestUrl.toString());
+                }
+                SunshinePreferences.resetNewestForecastDate(context, locationSetting);
+            }
+        } finally {
+            untrackedCursor.close();
+        }
+
+        context.getContentResolver().delete(
+                WeatherContract.LocationEntry.CONTENT_URI,
+                selection.toString(),
+                locations);
+    }
+
+    /**
+     * Sends today's weather of the preferred location, as already stored in our ContentProvider,
+     * to the watch face without syncing. This is used to answer the watch face when the stored
+     * weather is recent enough.
+     *
+     * @param context Used to access the ContentResolver
+     */
+    public static void sendStoredWeatherDataToWatchFace(Context context) {
+        sendStoredWeatherDataToWatchFace(context,
+                SunshinePreferences.getPreferredWeatherLocation(context));
+    }
+
+    /**
+     * Sends today's weather, as already stored in our ContentProvider, to the watch face. This is
+     * used when a sync found nothing new to store.
+     *
+     * @param context         Used to access the ContentResolver
+     * @param locationSetting The location whose weather the watch face shows
+     */
+    private static void sendStoredWeatherDataToWatchFace(Context context, String locationSetting) {
+        Uri todaysWeatherUri = WeatherContract.WeatherEntry.buildWeatherUriWithLocationAndDate(
+                locationSetting, SunshineDateUtils.getNormalizedUtcDateForToday());
+
+        Cursor todayWeatherCursor = context.getContentResolver().query(
+                todaysWeatherUri,
+                WATCH_FACE_WEATHER_PROJECTION,
+                null,
+                null,
+                null);
+
+        if (todayWeatherCursor == null) {
+            return;
+        }
+
+        try {
+            if (todayWeatherCursor.moveToFirst()) {
+                sendWeatherDataToWatchFace(context,
+                        todayWeatherCursor.getDouble(INDEX_MAX_TEMP),
+                        todayWeatherCursor.getDouble(INDEX_MIN_TEMP),
+                        todayWeatherCursor.getInt(INDEX_WEATHER_ID));
+            }
+        } finally {
+            todayWeatherCursor.close();
+        }
+    }
+
+    /**
+     * Sends a day's weather to the watch face.
+     *
+     * @param context   Used to connect to the Wearable API and to access resources
+     * @param maxTemp   The day's high temperature
+     * @param minTemp   The day's low temperature
+     * @param weatherId The day's weather condition id, as returned by the API
+     */
+    private static void sendWeatherDataToWatchFace(Context context, double maxTemp,
+                                                   double minTemp, int weatherId) {
+
+        /*
+         * The watch face bundles its own weather icons, so we only send the condition id and
+         * the watch picks the matching icon. That keeps the data item to a handful of ints.
+         */
         PutDataMapRequest request = PutDataMapRequest.create(context.getString(R.string.sunshine_wear_data_path));
         DataMap map = request.getDataMap();
-        map.putString(context.getString(R.string.high_temp_wear_string), String.valueOf(Math.round(maxTemp)));
-        map.putString(context.getString(R.string.low_temp_wear_string), String.valueOf(Math.round(minTemp)));
-        map.putAsset(context.getString(R.string.weather_icon_asset_string), asset);
+        map.putInt(context.getString(R.string.high_temp_wear_string), (int) Math.round(maxTemp));
+        map.putInt(context.getString(R.string.low_temp_wear_string), (int) Math.round(minTemp));
+        map.putInt(context.getString(R.string.weather_id_wear_string), weatherId);
         map.putLong(context.getString(R.string.time_stamp_string), System.currentTimeMillis());
         map.putBoolean(context.getString(R.string.set_refresh_bool_string), false);
 
         PutDataRequest dataRequest = request.asPutDataRequest();
         dataRequest.setUrgent();
-        Wearable.DataApi.putDataItem(googleClient, dataRequest)
-                .setResultCallback(new ResultCallback<DataApi.DataItemResult>() {
-                    @Override
-                    public void onResult(@NonNull DataApi.DataItemResult dataItemResult) {
-                        if (!dataItemResult.getStatus().isSuccess()) {
-                            Log.d(TAG, ": " + dataItemResult.getStatus().getStatusMessage());
-                        }
-                    }
-                });
 
+        /*
+         * The shared session connects if it needs to and sends the data item once connected.
+         * We wait for that to happen, as the job running this sync may be finished, and the
+         * process let go, as soon as we return.
+         */
+        WearDataSession session = WearDataSession.getInstance(context);
+        session.putDataItem(dataRequest);
+        try {
+            if (!session.awaitConnected(WATCH_FACE_CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                Log.w(TAG, "Timed out connecting to the Data Layer, watch face update still queued");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
\ No newline at end of file
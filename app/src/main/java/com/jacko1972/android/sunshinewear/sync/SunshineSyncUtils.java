@@ -17,9 +17,9 @@ package com.jacko1972.android.sunshinewear.sync;
 
 import android.content.Context;
 import android.content.Intent;
-import android.database.Cursor;
-import android.net.Uri;
+import android.os.AsyncTask;
 import android.support.annotation.NonNull;
+import android.util.Log;
 
 import com.firebase.jobdispatcher.Constraint;
 import com.firebase.jobdispatcher.Driver;
@@ -28,19 +28,18 @@ import com.firebase.jobdispatcher.GooglePlayDriver;
 import com.firebase.jobdispatcher.Job;
 import com.firebase.jobdispatcher.Lifetime;
 import com.firebase.jobdispatcher.Trigger;
-import com.jacko1972.android.sunshinewear.data.WeatherContract;
-
-import java.util.concurrent.TimeUnit;
+import com.jacko1972.android.sunshinewear.data.SunshinePreferences;
+import com.jacko1972.android.sunshinewear.utilities.SunshineDateUtils;
 
 public class SunshineSyncUtils {
 
+    private static final String TAG = "SunshineSyncUtils";
+
     /*
-     * Interval at which to sync with the weather. Use TimeUnit for convenience, rather than
-     * writing out a bunch of multiplication ourselves and risk making a silly mistake.
+     * The interval at which we sync with the weather is decided by AdaptiveSyncPolicy. The job may
+     * run up to a third of that interval late, so the system can batch it with other work.
      */
-    private static final int SYNC_INTERVAL_HOURS = 3;
-    private static final int SYNC_INTERVAL_SECONDS = (int) TimeUnit.HOURS.toSeconds(SYNC_INTERVAL_HOURS);
-    private static final int SYNC_FLEXTIME_SECONDS = SYNC_INTERVAL_SECONDS / 3;
+    private static final int SYNC_FLEXTIME_DIVISOR = 3;
 
     private static boolean sInitialized;
 
@@ -49,10 +48,15 @@ public class SunshineSyncUtils {
     /**
      * Schedules a repeating sync of Sunshine's weather data using FirebaseJobDispatcher.
      *
-     * @param context Context used to create the GooglePlayDriver that powers the
-     *                FirebaseJobDispatcher
+     * @param context         Context used to create the GooglePlayDriver that powers the
+     *                        FirebaseJobDispatcher
+     * @param intervalSeconds How long to wait between syncs
      */
-    static void scheduleFirebaseJobDispatcherSync(@NonNull final Context context) {
+    static void scheduleFirebaseJobDispatcherSync(@NonNull final Context context,
+                                                  long intervalSeconds) {
+
+        int syncIntervalSeconds = (int) intervalSeconds;
+        int syncFlextimeSeconds = syncIntervalSeconds / SYNC_FLEXTIME_DIVISOR;
 
         Driver driver = new GooglePlayDriver(context);
         FirebaseJobDispatcher dispatcher = new FirebaseJobDispatcher(driver);
@@ -80,15 +84,16 @@ public class SunshineSyncUtils {
                  */
                 .setRecurring(true)
                 /*
-                 * We want the weather data to be synced every 3 to 4 hours. The first argument for
+                 * We want the weather data to be synced every interval, give or take the flex
+                 * time, which with the base interval is every 3 to 4 hours. The first argument for
                  * Trigger's static executionWindow method is the start of the time frame when the
                  * sync should be performed. The second argument is the latest point in time at
                  * which the data should be synced. Please note that this end time is not
                  * guaranteed, but is more of a guideline for FirebaseJobDispatcher to go off of.
                  */
                 .setTrigger(Trigger.executionWindow(
-                        SYNC_INTERVAL_SECONDS,
-                        SYNC_INTERVAL_SECONDS + SYNC_FLEXTIME_SECONDS))
+                        syncIntervalSeconds,
+                        syncIntervalSeconds + syncFlextimeSeconds))
                 /*
                  * If a Job with the tag with provided already exists, this new job will replace
                  * the old one.
@@ -99,6 +104,60 @@ public class SunshineSyncUtils {
 
         /* Schedule the Job with the dispatcher */
         dispatcher.schedule(syncSunshineJob);
+        SunshinePreferences.saveScheduledSyncInterval(context, intervalSeconds);
+    }
+
+    /**
+     * Records that the user has looked at the weather, in the app or on the watch face, so that
+     * we sync more often for a while. This is called from MainActivity#onStart, so the
+     * preferences and the job dispatcher are dealt with on AsyncTask's shared thread pool, as
+     * initialize does, rather than on the main thread.
+     *
+     * @param context Used to access the preferences and reschedule the sync job, only its
+     *                application Context is kept
+     */
+    public static void recordUserActivity(@NonNull Context context) {
+        final Context appContext = context.getApplicationContext();
+        final long activityMillis = System.currentTimeMillis();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                recordUserActivity(appContext, activityMillis);
+            }
+        });
+    }
+
+    synchronized private static void recordUserActivity(Context context, long activityMillis) {
+        AdaptiveSyncPolicy policy = SunshinePreferences.getAdaptiveSyncPolicy(context);
+        policy.onUserActivity(activityMillis);
+        SunshinePreferences.saveAdaptiveSyncPolicy(context, policy);
+        rescheduleIfIntervalChanged(context, policy);
+    }
+
+    /**
+     * Lets the sync policy know what a sync found, so it can sync less often while the forecast
+     * doesn't change.
+     *
+     * @param context Used to access the preferences and reschedule the sync job
+     * @param outcome How the sync went
+     */
+    synchronized static void recordSyncOutcome(@NonNull Context context,
+                                               SunshineSyncCoordinator.Outcome outcome) {
+        AdaptiveSyncPolicy policy = SunshinePreferences.getAdaptiveSyncPolicy(context);
+        policy.onSyncFinished(outcome);
+        SunshinePreferences.saveAdaptiveSyncPolicy(context, policy);
+        rescheduleIfIntervalChanged(context, policy);
+    }
+
+    /**
+     * Schedules the sync job again if the policy now asks for a different interval than the one
+     * the job was scheduled with.
+     */
+    private static void rescheduleIfIntervalChanged(Context context, AdaptiveSyncPolicy policy) {
+        long intervalSeconds = policy.getIntervalSeconds(System.currentTimeMillis());
+        if (intervalSeconds != SunshinePreferences.getScheduledSyncInterval(context)) {
+            scheduleFirebaseJobDispatcherSync(context, intervalSeconds);
+        }
     }
 
     /**
@@ -122,63 +181,41 @@ public class SunshineSyncUtils {
          * This method call triggers Sunshine to create its task to synchronize weather data
          * periodically.
          */
-        scheduleFirebaseJobDispatcherSync(context);
+        AdaptiveSyncPolicy policy = SunshinePreferences.getAdaptiveSyncPolicy(context);
+        scheduleFirebaseJobDispatcherSync(context,
+                policy.getIntervalSeconds(System.currentTimeMillis()));
 
         /*
-         * We need to check to see if our ContentProvider has data to display in our forecast
-         * list. However, performing a query on the main thread is a bad idea as this may
-         * cause our UI to lag. Therefore, we create a thread in which we will run the query
-         * to check the contents of our ContentProvider.
+         * We need to check to see if we have data to display in our forecast list. Rather than
+         * querying our ContentProvider, we look at the newest date we stored weather for, which
+         * the sync keeps in the preferences. Reading the preferences for the first time still
+         * touches the disk, so we do it on AsyncTask's shared thread pool rather than the main
+         * thread, and rather than starting a thread of our own.
          */
-        Thread checkForEmpty = new Thread(new Runnable() {
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
             @Override
             public void run() {
-
-                /* URI for every row of weather data in our weather table*/
-                Uri forecastQueryUri = WeatherContract.WeatherEntry.CONTENT_URI;
+                String locationSetting = SunshinePreferences.getPreferredWeatherLocation(context);
+                long newestForecastDate = SunshinePreferences
+                        .getNewestForecastDate(context, locationSetting);
+                long today = SunshineDateUtils.getNormalizedUtcDateForToday();
 
                 /*
-                 * Since this query is going to be used only as a check to see if we have any
-                 * data (rather than to display data), we just need to PROJECT the ID of each
-                 * row. In our queries where we display data, we need to PROJECT more columns
-                 * to determine what weather details need to be displayed.
+                 * If we have no weather stored for the preferred location, or none from today
+                 * onwards, we need to sync immediately to be able to display data to the user.
                  */
-                String[] projectionColumns = {WeatherContract.WeatherEntry._ID};
-                String selectionStatement = WeatherContract.WeatherEntry
-                        .getSqlSelectForTodayOnwards();
-
-                /* Here, we perform the query to check to see if we have any weather data */
-                Cursor cursor = context.getContentResolver().query(
-                        forecastQueryUri,
-                        projectionColumns,
-                        selectionStatement,
-                        null,
-                        null);
-                /*
-                 * A Cursor object can be null for various different reasons. A few are
-                 * listed below.
-                 *
-                 *   1) Invalid URI
-                 *   2) A certain ContentProvider's query method returns null
-                 *   3) A RemoteException was thrown.
-                 *
-                 * Bottom line, it is generally a good idea to check if a Cursor returned
-                 * from a ContentResolver is null.
-                 *
-                 * If the Cursor was null OR if it was empty, we need to sync immediately to
-                 * be able to display data to the user.
-                 */
-                if (null == cursor || cursor.getCount() == 0) {
+                if (newestForecastDate < today) {
+                    Log.d(TAG, "No weather stored from today onwards, last synced "
+                            + SunshinePreferences.getLastSyncTimeInMillis(context, locationSetting));
+                    /*
+                     * Whatever response we last stored is gone or out of date, so make sure the
+                     * sync doesn't get told the forecast is unchanged.
+                     */
+                    SunshinePreferences.resetResponseValidators(context);
                     startImmediateSync(context);
                 }
-
-                /* Make sure to close the Cursor to avoid memory leaks! */
-                cursor.close();
             }
         });
-
-        /* Finally, once the thread is prepared, fire it off to perform our checks. */
-        checkForEmpty.start();
     }
 
     /**
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear.sync;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a record of the last few syncs: how long each stage took, how many bytes were downloaded,
+ * how many rows were written, how many locations the server told us were unchanged, and why
+ * anything failed. This is what tells us where the time of a sync goes on a real device.
+ * <p>
+ * Dump the records with
+ * <pre>
+ *   adb shell dumpsys activity provider com.jacko1972.android.sunshinewear/.data.WeatherProvider
+ * </pre>
+ * which WeatherProvider#dump passes on to {@link #dump(PrintWriter)}.
+ */
+public final class SyncTelemetry {
+
+    /**
+     * The stages of a sync. The fetch, parse and store stages add up the time spent on every
+     * location, which are synced concurrently, so together they may add up to more than the
+     * sync took.
+     */
+    public enum Stage {
+        /* Connecting and waiting for the response headers */
+        FETCH,
+        /* Downloading and parsing the response body */
+        PARSE,
+        /* Deleting the locations the user no longer tracks */
+        DELETE,
+        /* Writing the forecast to the database */
+        STORE,
+        /* Deciding on and showing the notification */
+        NOTIFY,
+        /* Sending today's weather to the watch face */
+        WEAR_PUSH
+    }
+
+    /* How many syncs we keep the records of */
+    static final int CAPACITY = 32;
+
+    /* The records of the last CAPACITY syncs, oldest first once full, guarded by itself */
+    private static final Record[] sRecords = new Record[CAPACITY];
+
+    /* Where the next record goes, guarded by sRecords */
+    private static int sNextRecord;
+
+    /* How many records were ever added, guarded by sRecords */
+    private static long sRecordCount;
+
+    private SyncTelemetry() {
+    }
+
+    /**
+     * Starts the record of a new sync. The record is added to the buffer once
+     * {@link Record#finish(SunshineSyncCoordinator.Outcome)} is called on it.
+     *
+     * @return The record to fill in
+     */
+    public static Record begin() {
+        return new Record(System.currentTimeMillis(), System.nanoTime());
+    }
+
+    /**
+     * @return The records of the most recent syncs, oldest first
+     */
+    public static List<Record> getRecords() {
+        synchronized (sRecords) {
+            int count = (int) Math.min(sRecordCount, CAPACITY);
+            List<Record> records = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                records.add(sRecords[(sNextRecord - count + i + CAPACITY) % CAPACITY]);
+            }
+            return records;
+        }
+    }
+
+    /**
+     * Forgets every record. Only meant for tests.
+     */
+    static void clear() {
+        synchronized (sRecords) {
+            Arrays.fill(sRecords, null);
+            sNextRecord = 0;
+            sRecordCount = 0;
+        }
+    }
+
+    /**
+     * Writes the records, oldest first, one line each.
+     *
+     * @param writer Where to write them
+     */
+    public static void dump(PrintWriter writer) {
+        List<Record> records = getRecords();
+        writer.println("Sync telemetry, last " + records.size() + " syncs:");
+        for (Record record : records) {
+            writer.print("  ");
+            writer.println(record);
+        }
+    }
+
+    private static void add(Record record) {
+        synchronized (sRecords) {
+            sRecords[sNextRecord] = record;
+            sNextRecord = (sNextRecord + 1) % CAPACITY;
+            sRecordCount++;
+        }
+    }
+
+    /**
+     * The record of a single sync. Locations are synced on several threads at once, so every
+     * method may be called from any thread.
+     */
+    public static final class Record {
+
+        private final long mStartTimeMillis;
+        private final long mStartNanos;
+
+        private final long[] mStageNanos = new long[Stage.values().length];
+        private long mBytesDownloaded;
+        private int mRowsWritten;
+        private int mCacheHits;
+        private final List<String> mFailures = new ArrayList<>();
+
+        private long mDurationNanos;
+        private SunshineSyncCoordinator.Outcome mOutcome;
+
+        Record(long startTimeMillis, long startNanos) {
+            mStartTimeMillis = startTimeMillis;
+            mStartNanos = startNanos;
+        }
+
+        /**
+         * Adds the time since startNanos to a stage.
+         *
+         * @param stage      The stage that just ended
+         * @param startNanos System#nanoTime from when the stage started
+         */
+        public synchronized void endStage(Stage stage, long startNanos) {
+            mStageNanos[stage.ordinal()] += System.nanoTime() - startNanos;
+        }
+
+        public synchronized void addBytesDownloaded(long bytes) {
+            mBytesDownloaded += bytes;
+        }
+
+        public synchronized void addRowsWritten(int rows) {
+            mRowsWritten += rows;
+        }
+
+        /**
+         * Records a location whose stored forecast the server told us is still current.
+         */
+        public synchronized void addCacheHit() {
+            mCacheHits++;
+        }
+
+        /**
+         * Records why part of the sync failed.
+         *
+         * @param what  What failed, such as the location being synced
+         * @param cause The exception it failed with
+         */
+        public synchronized void addFailure(String what, Throwable cause) {
+            mFailures.add(what + ": " + cause);
+        }
+
+        /**
+         * Ends the record and adds it to the buffer.
+         *
+         * @param outcome How the sync went
+         */
+        public void finish(SunshineSyncCoordinator.Outcome outcome) {
+            synchronized (this) {
+                mDurationNanos = System.nanoTime() - mStartNanos;
+                mOutcome = outcome;
+            }
+            add(this);
+        }
+
+        public long getStartTimeMillis() {
+            return mStartTimeMillis;
+        }
+
+        public synchronized long getStageMillis(Stage stage) {
+            return TimeUnit.NANOSECONDS.toMillis(mStageNanos[stage.ordinal()]);
+        }
+
+        public synchronized long getDurationMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(mDurationNanos);
+        }
+
+        public synchronized long getBytesDownloaded() {
+            return mBytesDownloaded;
+        }
+
+        public synchronized int getRowsWritten() {
+            return mRowsWritten;
+        }
+
+        public synchronized int getCacheHits() {
+            return mCacheHits;
+        }
+
+        public synchronized List<String> getFailures() {
+            return Collections.unmodifiableList(new ArrayList<>(mFailures));
+        }
+
+        public synchronized SunshineSyncCoordinator.Outcome getOutcome() {
+            return mOutcome;
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(mStartTimeMillis).append(' ').append(mOutcome)
+                    .append(" in ").append(getDurationMillis()).append(" ms");
+            for (Stage stage : Stage.values()) {
+                builder.append(", ").append(stage.name().toLowerCase(Locale.US))
+                        .append(' ').append(getStageMillis(stage)).append(" ms");
+            }
+            builder.append(", ").append(mBytesDownloaded).append(" bytes")
+                    .append(", ").append(mRowsWritten).append(" rows")
+                    .append(", ").append(mCacheHits).append(" not modified");
+            for (String failure : mFailures) {
+                builder.append(", failed ").append(failure);
+            }
+            return builder.toString();
+        }
+    }
+}
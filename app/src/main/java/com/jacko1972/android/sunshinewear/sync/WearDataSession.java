@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear.sync;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.PutDataRequest;
+import com.google.android.gms.wearable.Wearable;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The one connection to the Wearable Data Layer that the whole app process shares for pushing
+ * data to the watch face.
+ * <p>
+ * The GoogleApiClient is only connected once there is something to send. Data items handed to
+ * {@link #putDataItem(PutDataRequest)} while the connection is still being set up are queued and
+ * sent as soon as it is ready, rather than being handed to a client that isn't connected yet.
+ * Once nothing has been sent for IDLE_TIMEOUT_MILLIS, the client is disconnected again so that it
+ * doesn't keep Google Play services bound while the app is idle.
+ */
+public final class WearDataSession implements GoogleApiClient.ConnectionCallbacks,
+        GoogleApiClient.OnConnectionFailedListener {
+
+    private static final String TAG = WearDataSession.class.getSimpleName();
+
+    /* How long the connection is kept after the last data item was delivered */
+    private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static WearDataSession sInstance;
+
+    private final GoogleApiClient mGoogleApiClient;
+
+    /* Connection callbacks and the idle teardown both run on the main thread */
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /* Data items waiting for the connection, guarded by this */
+    private final Queue<PutDataRequest> mPendingRequests = new ArrayDeque<>();
+
+    /* Data items handed to the Data Layer whose result hasn't come back yet, guarded by this */
+    private int mRequestsInFlight;
+
+    /*
+     * Released once the current connection attempt has either succeeded, with the queued data
+     * items handed over, or failed. A new latch is created for every connection attempt.
+     */
+    private CountDownLatch mConnectedLatch = new CountDownLatch(0);
+
+    private final Runnable mDisconnectIfIdle = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (WearDataSession.this) {
+                if (mPendingRequests.isEmpty() && mRequestsInFlight == 0) {
+                    Log.d(TAG, "Idle, disconnecting from the Data Layer");
+                    mGoogleApiClient.disconnect();
+                }
+            }
+        }
+    };
+
+    private final ResultCallback<DataApi.DataItemResult> mResultCallback =
+            new ResultCallback<DataApi.DataItemResult>() {
+                @Override
+                public void onResult(@NonNull DataApi.DataItemResult dataItemResult) {
+                    if (!dataItemResult.getStatus().isSuccess()) {
+                        Log.d(TAG, ": " + dataItemResult.getStatus().getStatusMessage());
+                    }
+
+                    synchronized (WearDataSession.this) {
+                        mRequestsInFlight--;
+                        scheduleIdleDisconnect();
+                    }
+                }
+            };
+
+    private WearDataSession(Context context) {
+        mGoogleApiClient = new GoogleApiClient.Builder(context)
+                .addConnectionCallbacks(this)
+                .addOnConnectionFailedListener(this)
+                .addApi(Wearable.API)
+                .build();
+    }
+
+    /**
+     * Returns the session of this process, creating it on first use. Creating the session doesn't
+     * connect it.
+     *
+     * @param context Any Context, only its application Context is kept
+     * @return The process-wide session
+     */
+    public static synchronized WearDataSession getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WearDataSession(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Sends a data item to the watch, connecting first if needed. This never blocks: if the
+     * connection isn't ready, the data item is queued and sent once it is.
+     *
+     * @param request The data item to put
+     */
+    public synchronized void putDataItem(PutDataRequest request) {
+        mHandler.removeCallbacks(mDisconnectIfIdle);
+
+        if (mGoogleApiClient.isConnected()) {
+            send(request);
+            return;
+        }
+
+        mPendingRequests.add(request);
+        if (!mGoogleApiClient.isConnecting()) {
+            mConnectedLatch = new CountDownLatch(1);
+            mGoogleApiClient.connect();
+        }
+    }
+
+    /**
+     * Waits until the data items queued so far have been handed to the Data Layer, or the
+     * connection attempt failed. Background work that is about to finish, such as a sync job,
+     * uses this so that its push isn't lost if the process goes away right after.
+     *
+     * @param timeout The longest time to wait
+     * @param unit    The unit of timeout
+     * @return true if the queue was sent or the attempt failed, false if the wait timed out
+     * @throws InterruptedException If the waiting thread was interrupted
+     */
+    public boolean awaitConnected(long timeout, TimeUnit unit) throws InterruptedException {
+        CountDownLatch connectedLatch;
+        synchronized (this) {
+            connectedLatch = mConnectedLatch;
+        }
+        return connectedLatch.await(timeout, unit);
+    }
+
+    @Override
+    public void onConnected(@Nullable Bundle bundle) {
+        synchronized (this) {
+            PutDataRequest request;
+            while ((request = mPendingRequests.poll()) != null) {
+                send(request);
+            }
+            scheduleIdleDisconnect();
+            mConnectedLatch.countDown();
+        }
+    }
+
+    @Override
+    public void onConnectionSuspended(int cause) {
+        /* GoogleApiClient reconnects by itself, and the queue is sent from onConnected again */
+        Log.d(TAG, "Data Layer connection suspended: " + cause);
+    }
+
+    @Override
+    public void onConnectionFailed(@NonNull ConnectionResult connectionResult) {
+        Log.e(TAG, "Couldn't connect to the Data Layer: " + connectionResult);
+
+        synchronized (this) {
+            /* The next sync sends fresh weather, so there is no point holding on to this */
+            mPendingRequests.clear();
+            mConnectedLatch.countDown();
+        }
+    }
+
+    /**
+     * Hands a data item to the connected Data Layer. Must be called holding the lock.
+     */
+    private void send(PutDataRequest request) {
+        mRequestsInFlight++;
+        Wearable.DataApi.putDataItem(mGoogleApiClient, request)
+                .setResultCallback(mResultCallback);
+    }
+
+    /**
+     * Disconnects after IDLE_TIMEOUT_MILLIS, unless something is sent before then. Must be
+     * called holding the lock.
+     */
+    private void scheduleIdleDisconnect() {
+        if (mRequestsInFlight == 0) {
+            mHandler.removeCallbacks(mDisconnectIfIdle);
+            mHandler.postDelayed(mDisconnectIfIdle, IDLE_TIMEOUT_MILLIS);
+        }
+    }
+}
@@ -1,12 +1,11 @@
 package com.jacko1972.android.sunshinewear.utilities;
 
-import android.content.ContentValues;
 import android.content.Context;
+import android.os.Bundle;
 
-import com.jacko1972.android.sunshinewear.data.WeatherContract;
+import com.jacko1972.android.sunshinewear.data.ForecastBatch;
+import com.jacko1972.android.sunshinewear.data.SunshinePreferences;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static com.jacko1972.android.sunshinewear.data.WeatherContract.WeatherEntry;
@@ -16,39 +15,41 @@ public class FakeDataUtils {
     private static int [] weatherIDs = {200,300,500,711,900,962};
 
     /**
-     * Creates a single ContentValues object with random weather data for the provided date
+     * Adds a day of random weather data for the provided date to a batch
+     * @param batch the batch to add the day to
      * @param date a normalized date
-     * @return ContentValues object filled with random weather data
      */
-    private static ContentValues createTestWeatherContentValues(long date) {
-        ContentValues testWeatherValues = new ContentValues();
-        testWeatherValues.put(WeatherEntry.COLUMN_DATE, date);
-        testWeatherValues.put(WeatherEntry.COLUMN_DEGREES, Math.random()*2);
-        testWeatherValues.put(WeatherEntry.COLUMN_HUMIDITY, Math.random()*100);
-        testWeatherValues.put(WeatherEntry.COLUMN_PRESSURE, 870 + Math.random()*100);
+    private static void addTestWeather(ForecastBatch batch, long date) {
         int maxTemp = (int)(Math.random()*100);
-        testWeatherValues.put(WeatherEntry.COLUMN_MAX_TEMP, maxTemp);
-        testWeatherValues.put(WeatherEntry.COLUMN_MIN_TEMP, maxTemp - (int) (Math.random()*10));
-        testWeatherValues.put(WeatherEntry.COLUMN_WIND_SPEED, Math.random()*10);
-        testWeatherValues.put(WeatherEntry.COLUMN_WEATHER_ID, weatherIDs[(int)(Math.random()*10)%5]);
-        return testWeatherValues;
+        batch.add(date,
+                weatherIDs[(int)(Math.random()*10)%5],
+                maxTemp - (int) (Math.random()*10),
+                maxTemp,
+                Math.random()*100,
+                870 + Math.random()*100,
+                Math.random()*10,
+                Math.random()*2);
     }
 
     /**
-     * Creates random weather data for 7 days starting today
+     * Creates random weather data for 7 days starting today, for the preferred location
      * @param context
      */
     public static void insertFakeData(Context context) {
         //Get today's normalized date
         long today = SunshineDateUtils.normalizeDate(System.currentTimeMillis());
-        List<ContentValues> fakeValues = new ArrayList<ContentValues>();
+        ForecastBatch fakeValues = new ForecastBatch(7);
         //loop over 7 days starting today onwards
         for(int i=0; i<7; i++) {
-            fakeValues.add(FakeDataUtils.createTestWeatherContentValues(today + TimeUnit.DAYS.toMillis(i)));
+            addTestWeather(fakeValues, today + TimeUnit.DAYS.toMillis(i));
         }
         // Bulk Insert our new weather data into Sunshine's Database
-        context.getContentResolver().bulkInsert(
-                WeatherContract.WeatherEntry.CONTENT_URI,
-                fakeValues.toArray(new ContentValues[7]));
+        Bundle extras = new Bundle();
+        fakeValues.writeToBundle(extras);
+        context.getContentResolver().call(
+                WeatherEntry.CONTENT_URI,
+                WeatherEntry.METHOD_BULK_INSERT_BATCH,
+                SunshinePreferences.getPreferredWeatherLocation(context),
+                extras);
     }
 }
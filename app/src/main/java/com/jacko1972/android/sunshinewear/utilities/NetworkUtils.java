@@ -17,6 +17,7 @@ package com.jacko1972.android.sunshinewear.utilities;
 
 import android.content.Context;
 import android.net.Uri;
+import android.support.annotation.VisibleForTesting;
 import android.util.Log;
 
 import com.jacko1972.android.sunshinewear.data.SunshinePreferences;
@@ -26,7 +27,7 @@ import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Scanner;
+import java.util.zip.GZIPInputStream;
 
 /**
  * These utilities will be used to communicate with the weather servers.
@@ -56,6 +57,9 @@ public final class NetworkUtils {
 
     private static final String FORECAST_BASE_URL = STATIC_WEATHER_URL;
 
+    /* The base URL actually requested, which tests point at a server of their own */
+    private static volatile String sForecastBaseUrl = FORECAST_BASE_URL;
+
     /*
      * NOTE: These values only effect responses from OpenWeatherMap, NOT from the fake weather
      * server. They are simply here to allow us to teach you how to build a URL if you were to use
@@ -83,6 +87,27 @@ public final class NetworkUtils {
     /* The days parameter allows us to designate how many days of weather data we want */
     private static final String DAYS_PARAM = "cnt";
 
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String ENCODING_GZIP = "gzip";
+
+    /* A 14 day forecast is a few KB, so this lets gzip inflate most responses in one read */
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Points every URL built from now on at the given weather server instead of
+     * FORECAST_BASE_URL, so that tests can answer the requests themselves.
+     *
+     * @param baseUrl The base URL to use, or null to go back to FORECAST_BASE_URL
+     */
+    @VisibleForTesting
+    public static void setForecastBaseUrl(String baseUrl) {
+        sForecastBaseUrl = baseUrl != null ? baseUrl : FORECAST_BASE_URL;
+    }
+
     /**
      * Retrieves the proper URL to query for the weather data. The reason for both this method as
      * well as {@link #buildUrlWithLocationQuery(String)} is two fold.
@@ -109,6 +134,22 @@ public final class NetworkUtils {
         }
     }
 
+    /**
+     * Retrieves the URL to query for the weather data of one of the locations we sync. The
+     * preferred location is handled by {@link #getUrl(Context)}, so that its coordinates are used
+     * once they are known. Any other location is queried by its location setting.
+     *
+     * @param context         used to access other Utility methods
+     * @param locationSetting the location to query the weather for
+     * @return URL to query weather service
+     */
+    public static URL getUrl(Context context, String locationSetting) {
+        if (locationSetting.equals(SunshinePreferences.getPreferredWeatherLocation(context))) {
+            return getUrl(context);
+        }
+        return buildUrlWithLocationQuery(locationSetting);
+    }
+
     /**
      * Builds the URL used to talk to the weather server using latitude and longitude of a
      * location.
@@ -118,7 +159,7 @@ public final class NetworkUtils {
      * @return The Url to use to query the weather server.
      */
     private static URL buildUrlWithLatitudeLongitude(Double latitude, Double longitude) {
-        Uri weatherQueryUri = Uri.parse(FORECAST_BASE_URL).buildUpon()
+        Uri weatherQueryUri = Uri.parse(sForecastBaseUrl).buildUpon()
                 .appendQueryParameter(LAT_PARAM, String.valueOf(latitude))
                 .appendQueryParameter(LON_PARAM, String.valueOf(longitude))
                 .appendQueryParameter(FORMAT_PARAM, format)
@@ -144,7 +185,7 @@ public final class NetworkUtils {
      * @return The URL to use to query the weather server.
      */
     private static URL buildUrlWithLocationQuery(String locationQuery) {
-        Uri weatherQueryUri = Uri.parse(FORECAST_BASE_URL).buildUpon()
+        Uri weatherQueryUri = Uri.parse(sForecastBaseUrl).buildUpon()
                 .appendQueryParameter(QUERY_PARAM, locationQuery)
                 .appendQueryParameter(FORMAT_PARAM, format)
                 .appendQueryParameter(UNITS_PARAM, units)
@@ -162,29 +203,91 @@ public final class NetworkUtils {
     }
 
     /**
-     * This method returns the entire result from the HTTP response.
+     * Opens a connection to the given URL without reading from it. This is used by callers that
+     * want to hand the response stream straight to a streaming parser rather than buffering the
+     * whole response into a String first. The caller must disconnect the connection once done.
+     * <p>
+     * We ask for a gzip encoded body ourselves. Doing so means HttpURLConnection will no longer
+     * decompress transparently, but it also means Content-Length is reported for the bytes that
+     * actually come over the wire, so
+     * {@link #decodeResponseStream(HttpURLConnection, InputStream)} must be used to read the body.
      *
      * @param url The URL to fetch the HTTP response from.
-     * @return The contents of the HTTP response, null if no response
-     * @throws IOException Related to network and stream reading
+     * @return The open connection
+     * @throws IOException Related to network access
      */
-    public static String getResponseFromHttpUrl(URL url) throws IOException {
+    public static HttpURLConnection openHttpConnection(URL url) throws IOException {
         HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
-        try {
-            InputStream in = urlConnection.getInputStream();
-
-            Scanner scanner = new Scanner(in);
-            scanner.useDelimiter("\\A");
-
-            boolean hasInput = scanner.hasNext();
-            String response = null;
-            if (hasInput) {
-                response = scanner.next();
-            }
-            scanner.close();
-            return response;
-        } finally {
-            urlConnection.disconnect();
+        urlConnection.setRequestProperty(HEADER_ACCEPT_ENCODING, ENCODING_GZIP);
+        return urlConnection;
+    }
+
+    /**
+     * Turns a request into a conditional one by attaching the validators of the last forecast we
+     * stored for the same URL, if we have any. The server will then answer with
+     * {@link HttpURLConnection#HTTP_NOT_MODIFIED} and no body if the forecast hasn't changed.
+     * <p>
+     * This must be called before the connection is connected.
+     *
+     * @param context       Used to access the saved validators
+     * @param urlConnection A connection opened with {@link #openHttpConnection(URL)}
+     */
+    public static void addConditionalHeaders(Context context, HttpURLConnection urlConnection) {
+        String[] validators = SunshinePreferences
+                .getResponseValidators(context, urlConnection.getURL().toString());
+        if (validators == null) {
+            return;
+        }
+
+        if (validators[0] != null) {
+            urlConnection.setRequestProperty(HEADER_IF_NONE_MATCH, validators[0]);
+        }
+        if (validators[1] != null) {
+            urlConnection.setRequestProperty(HEADER_IF_MODIFIED_SINCE, validators[1]);
+        }
+    }
+
+    /**
+     * Returns whether the server told us the resource hasn't changed since the validators sent
+     * by {@link #addConditionalHeaders(Context, HttpURLConnection)}.
+     *
+     * @param urlConnection The connection to check, which will be connected if it isn't already
+     * @return true if the response is 304 Not Modified
+     * @throws IOException Related to network access
+     */
+    public static boolean isNotModified(HttpURLConnection urlConnection) throws IOException {
+        return urlConnection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED;
+    }
+
+    /**
+     * Reads the cache validators from a response so they can be saved once its contents have been
+     * stored. See {@link SunshinePreferences#saveResponseValidators}.
+     *
+     * @param urlConnection The connection to read the response headers from
+     * @return an array holding the ETag and Last-Modified values, either of which may be null
+     */
+    public static String[] getResponseValidators(HttpURLConnection urlConnection) {
+        String[] validators = new String[2];
+        validators[0] = urlConnection.getHeaderField(HEADER_ETAG);
+        validators[1] = urlConnection.getHeaderField(HEADER_LAST_MODIFIED);
+        return validators;
+    }
+
+    /**
+     * Decodes a response body read from the given stream, inflating it if the server sent it
+     * gzip encoded. This lets the caller wrap the raw stream first, to see the bytes as they came
+     * over the network.
+     *
+     * @param urlConnection A connection opened with {@link #openHttpConnection(URL)}
+     * @param in            The raw response body, as read from the connection
+     * @return The decoded response body
+     * @throws IOException Related to network and stream reading
+     */
+    public static InputStream decodeResponseStream(HttpURLConnection urlConnection, InputStream in)
+            throws IOException {
+        if (ENCODING_GZIP.equalsIgnoreCase(urlConnection.getContentEncoding())) {
+            in = new GZIPInputStream(in, BUFFER_SIZE);
         }
+        return in;
     }
-}
\ No newline at end of file
+}
@@ -15,16 +15,17 @@
  */
 package com.jacko1972.android.sunshinewear.utilities;
 
-import android.content.ContentValues;
 import android.content.Context;
+import android.util.JsonReader;
+import android.util.JsonToken;
 
-import com.jacko1972.android.sunshinewear.data.SunshinePreferences;
-import com.jacko1972.android.sunshinewear.data.WeatherContract;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.jacko1972.android.sunshinewear.data.ForecastBatch;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.HttpURLConnection;
 
 /**
@@ -60,52 +61,56 @@ public final class OpenWeatherJsonUtils {
 
     private static final String OWM_MESSAGE_CODE = "cod";
 
+    /* The forecast is always UTF-8 encoded, regardless of what the server claims */
+    private static final String CHARSET_UTF_8 = "UTF-8";
+
+    /* Days in a normal forecast, used to size the batch the days are parsed into */
+    private static final int EXPECTED_DAYS = 14;
+
     /**
-     * This method parses JSON from a web response and returns an array of Strings
-     * describing the weather over various days from the forecast.
+     * This method parses JSON from a web response and returns a ForecastBatch describing the
+     * weather over various days from the forecast.
      * <p/>
-     * Later on, we'll be parsing the JSON into structured data within the
-     * getFullWeatherDataFromJson function, leveraging the data we have stored in the JSON. For
-     * now, we just convert the JSON into human-readable strings.
+     * This is a convenience wrapper for callers that already hold the full response as a String.
+     * The parsing itself is done by the same streaming parser used by
+     * {@link #getForecastFromJson(Context, InputStream)}.
      *
      * @param forecastJsonStr JSON response from server
      *
-     * @return Array of Strings describing weather data
+     * @return One row of weather data per day, null if the server reported an error
      *
-     * @throws JSONException If JSON data cannot be properly parsed
+     * @throws IOException If JSON data cannot be properly parsed
      */
-    public static ContentValues[] getWeatherContentValuesFromJson(Context context, String forecastJsonStr)
-            throws JSONException {
-
-        JSONObject forecastJson = new JSONObject(forecastJsonStr);
-
-        /* Is there an error? */
-        if (forecastJson.has(OWM_MESSAGE_CODE)) {
-            int errorCode = forecastJson.getInt(OWM_MESSAGE_CODE);
-
-            switch (errorCode) {
-                case HttpURLConnection.HTTP_OK:
-                    break;
-                case HttpURLConnection.HTTP_NOT_FOUND:
-                    /* Location invalid */
-                    return null;
-                default:
-                    /* Server probably down */
-                    return null;
-            }
-        }
-
-        JSONArray jsonWeatherArray = forecastJson.getJSONArray(OWM_LIST);
-
-        JSONObject cityJson = forecastJson.getJSONObject(OWM_CITY);
+    public static ForecastBatch getForecastFromJson(Context context, String forecastJsonStr)
+            throws IOException {
+        return getForecastFromJson(context, new StringReader(forecastJsonStr));
+    }
 
-        JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
-        double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
-        double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
+    /**
+     * This method parses JSON straight from the HTTP response stream and returns a ForecastBatch
+     * describing the weather over various days from the forecast.
+     * <p/>
+     * Unlike building a JSONObject, the response is pulled one token at a time, so neither the
+     * whole response String nor a DOM of it is ever held in memory. Each day's row is appended
+     * to the batch as soon as its JSON object has been read, as primitives, without boxing. The
+     * caller remains responsible for closing the stream.
+     *
+     * @param forecastJsonStream JSON response from server
+     *
+     * @return One row of weather data per day, null if the server reported an error
+     *
+     * @throws IOException If the stream cannot be read or the JSON cannot be properly parsed
+     */
+    public static ForecastBatch getForecastFromJson(Context context, InputStream forecastJsonStream)
+            throws IOException {
+        return getForecastFromJson(context,
+                new InputStreamReader(forecastJsonStream, CHARSET_UTF_8));
+    }
 
-        SunshinePreferences.setLocationDetails(context, cityLatitude, cityLongitude);
+    private static ForecastBatch getForecastFromJson(Context context, Reader forecastJsonReader)
+            throws IOException {
 
-        ContentValues[] weatherContentValues = new ContentValues[jsonWeatherArray.length()];
+        JsonReader reader = new JsonReader(forecastJsonReader);
 
         /*
          * OWM returns daily forecasts based upon the local time of the city that is being asked
@@ -113,72 +118,238 @@ public final class OpenWeatherJsonUtils {
          * Since this data is also sent in-order and the first day is always the current day, we're
          * going to take advantage of that to get a nice normalized UTC date for all of our weather.
          */
-//        long now = System.currentTimeMillis();
-//        long normalizedUtcStartDay = SunshineDateUtils.normalizeDate(now);
-
         long normalizedUtcStartDay = SunshineDateUtils.getNormalizedUtcDateForToday();
 
-        for (int i = 0; i < jsonWeatherArray.length(); i++) {
-
-            long dateTimeMillis;
-            double pressure;
-            int humidity;
-            double windSpeed;
-            double windDirection;
-
-            double high;
-            double low;
-
-            int weatherId;
-
-            /* Get the JSON object representing the day */
-            JSONObject dayForecast = jsonWeatherArray.getJSONObject(i);
-
-            /*
-             * We ignore all the datetime values embedded in the JSON and assume that
-             * the values are returned in-order by day (which is not guaranteed to be correct).
-             */
-            dateTimeMillis = normalizedUtcStartDay + SunshineDateUtils.DAY_IN_MILLIS * i;
-
-            pressure = dayForecast.getDouble(OWM_PRESSURE);
-            humidity = dayForecast.getInt(OWM_HUMIDITY);
-            windSpeed = dayForecast.getDouble(OWM_WINDSPEED);
-            windDirection = dayForecast.getDouble(OWM_WIND_DIRECTION);
-
-            /*
-             * Description is in a child array called "weather", which is 1 element long.
-             * That element also contains a weather code.
-             */
-            JSONObject weatherObject =
-                    dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
-
-            weatherId = weatherObject.getInt(OWM_WEATHER_ID);
-
-            /*
-             * Temperatures are sent by Open Weather Map in a child object called "temp".
-             *
-             * Editor's Note: Try not to name variables "temp" when working with temperature.
-             * It confuses everybody. Temp could easily mean any number of things, including
-             * temperature, temporary variable, temporary folder, temporary employee, or many
-             * others, and is just a bad variable name.
-             */
-            JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
-            high = temperatureObject.getDouble(OWM_MAX);
-            low = temperatureObject.getDouble(OWM_MIN);
-
-            ContentValues weatherValues = new ContentValues();
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE, dateTimeMillis);
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, humidity);
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, pressure);
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, windSpeed);
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, windDirection);
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, high);
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, low);
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, weatherId);
-
-            weatherContentValues[i] = weatherValues;
+        ForecastBatch forecast = new ForecastBatch(EXPECTED_DAYS);
+        double[] cityCoord = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_MESSAGE_CODE.equals(name)) {
+                /* Is there an error? The code may be sent either as a number or a String */
+                int errorCode = reader.nextInt();
+
+                switch (errorCode) {
+                    case HttpURLConnection.HTTP_OK:
+                        break;
+                    case HttpURLConnection.HTTP_NOT_FOUND:
+                        /* Location invalid */
+                        return null;
+                    default:
+                        /* Server probably down */
+                        return null;
+                }
+            } else if (OWM_CITY.equals(name)) {
+                cityCoord = readCityCoord(reader);
+            } else if (OWM_LIST.equals(name)) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    /*
+                     * We ignore all the datetime values embedded in the JSON and assume that
+                     * the values are returned in-order by day (which is not guaranteed to be
+                     * correct).
+                     */
+                    long dateTimeMillis = normalizedUtcStartDay
+                            + SunshineDateUtils.DAY_IN_MILLIS * forecast.size();
+                    readDayForecast(reader, dateTimeMillis, forecast);
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (cityCoord == null) {
+            throw new IOException("Forecast is missing the " + OWM_CITY + " object");
         }
 
-        return weatherContentValues;
+        /*
+         * The caller decides what to do with the coordinates, as only those of the user's
+         * preferred location belong in the preferences.
+         */
+        forecast.setCoordinates(cityCoord[0], cityCoord[1]);
+
+        return forecast;
+    }
+
+    /**
+     * Reads the "city" object, keeping only its coordinates.
+     *
+     * @return latitude and longitude of the city, in that order
+     */
+    private static double[] readCityCoord(JsonReader reader) throws IOException {
+        double[] cityCoord = null;
+        boolean hasLatitude = false;
+        boolean hasLongitude = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (OWM_COORD.equals(reader.nextName())) {
+                cityCoord = new double[2];
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (OWM_LATITUDE.equals(name)) {
+                        cityCoord[0] = reader.nextDouble();
+                        hasLatitude = true;
+                    } else if (OWM_LONGITUDE.equals(name)) {
+                        cityCoord[1] = reader.nextDouble();
+                        hasLongitude = true;
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (cityCoord == null) {
+            throw new IOException("Forecast is missing the " + OWM_COORD + " object");
+        }
+        requireField(hasLatitude, OWM_COORD, OWM_LATITUDE);
+        requireField(hasLongitude, OWM_COORD, OWM_LONGITUDE);
+        return cityCoord;
+    }
+
+    /**
+     * Reads one element of the "list" array and appends it to the forecast as a row for our
+     * weather table. Every field we store is required: a day missing any of them would
+     * otherwise be stored, and shown, with zeros in its place.
+     *
+     * @param dateTimeMillis Normalized UTC date to store this day's forecast under
+     * @param forecast       The batch to append the day to
+     * @throws IOException If the day is missing one of the fields we store
+     */
+    private static void readDayForecast(JsonReader reader, long dateTimeMillis,
+                                        ForecastBatch forecast) throws IOException {
+
+        double pressure = 0;
+        int humidity = 0;
+        double windSpeed = 0;
+        double windDirection = 0;
+
+        double high = 0;
+        double low = 0;
+
+        int weatherId = 0;
+
+        boolean hasPressure = false;
+        boolean hasHumidity = false;
+        boolean hasWindSpeed = false;
+        boolean hasWindDirection = false;
+        boolean hasHigh = false;
+        boolean hasLow = false;
+        boolean hasWeatherId = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_PRESSURE.equals(name)) {
+                pressure = reader.nextDouble();
+                hasPressure = true;
+            } else if (OWM_HUMIDITY.equals(name)) {
+                /* Humidity is occasionally sent with a fractional part, which we drop */
+                humidity = (int) reader.nextDouble();
+                hasHumidity = true;
+            } else if (OWM_WINDSPEED.equals(name)) {
+                windSpeed = reader.nextDouble();
+                hasWindSpeed = true;
+            } else if (OWM_WIND_DIRECTION.equals(name)) {
+                windDirection = reader.nextDouble();
+                hasWindDirection = true;
+            } else if (OWM_WEATHER.equals(name)) {
+                weatherId = readWeatherId(reader);
+                hasWeatherId = true;
+            } else if (OWM_TEMPERATURE.equals(name)) {
+                /*
+                 * Temperatures are sent by Open Weather Map in a child object called "temp".
+                 *
+                 * Editor's Note: Try not to name variables "temp" when working with temperature.
+                 * It confuses everybody. Temp could easily mean any number of things, including
+                 * temperature, temporary variable, temporary folder, temporary employee, or many
+                 * others, and is just a bad variable name.
+                 */
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String temperatureName = reader.nextName();
+                    if (OWM_MAX.equals(temperatureName)) {
+                        high = reader.nextDouble();
+                        hasHigh = true;
+                    } else if (OWM_MIN.equals(temperatureName)) {
+                        low = reader.nextDouble();
+                        hasLow = true;
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        requireField(hasPressure, OWM_LIST, OWM_PRESSURE);
+        requireField(hasHumidity, OWM_LIST, OWM_HUMIDITY);
+        requireField(hasWindSpeed, OWM_LIST, OWM_WINDSPEED);
+        requireField(hasWindDirection, OWM_LIST, OWM_WIND_DIRECTION);
+        requireField(hasWeatherId, OWM_LIST, OWM_WEATHER);
+        requireField(hasHigh, OWM_TEMPERATURE, OWM_MAX);
+        requireField(hasLow, OWM_TEMPERATURE, OWM_MIN);
+
+        forecast.add(dateTimeMillis, weatherId, low, high, humidity, pressure, windSpeed,
+                windDirection);
+    }
+
+    /**
+     * Description is in a child array called "weather", which is 1 element long. That element
+     * also contains a weather code, which is the only part we keep.
+     *
+     * @throws IOException If the array has no element with a weather code
+     */
+    private static int readWeatherId(JsonReader reader) throws IOException {
+        int weatherId = 0;
+        boolean hasWeatherId = false;
+
+        reader.beginArray();
+        if (reader.hasNext() && reader.peek() == JsonToken.BEGIN_OBJECT) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (OWM_WEATHER_ID.equals(reader.nextName())) {
+                    weatherId = reader.nextInt();
+                    hasWeatherId = true;
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        while (reader.hasNext()) {
+            reader.skipValue();
+        }
+        reader.endArray();
+
+        requireField(hasWeatherId, OWM_WEATHER, OWM_WEATHER_ID);
+        return weatherId;
+    }
+
+    /**
+     * Fails the parse if a field we need was absent from the response.
+     *
+     * @param present Whether the field was read
+     * @param parent  Name of the JSON object or array the field belongs in
+     * @param name    Name of the field
+     * @throws IOException If the field wasn't read
+     */
+    private static void requireField(boolean present, String parent, String name)
+            throws IOException {
+        if (!present) {
+            throw new IOException("Forecast is missing " + parent + "." + name);
+        }
     }
-}
\ No newline at end of file
+}
@@ -21,6 +21,8 @@ import android.text.format.DateUtils;
 import com.jacko1972.android.sunshinewear.R;
 
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Locale;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
@@ -32,6 +34,23 @@ public final class SunshineDateUtils {
     /* Milliseconds in a day */
     public static final long DAY_IN_MILLIS = TimeUnit.DAYS.toMillis(1);
 
+    /* How many days, starting with yesterday, have their friendly date strings cached */
+    private static final int CACHED_FRIENDLY_DATES = 16;
+
+    /*
+     * Friendly date strings, short and full, indexed by the number of days after
+     * sFriendlyDatesStart. They are only valid for the day, Locale and time zone they were
+     * formatted in, and are thrown away as soon as any of those changes. Guarded by
+     * sFriendlyDatesLock.
+     */
+    private static final Object sFriendlyDatesLock = new Object();
+    private static final String[] sFriendlyDates = new String[CACHED_FRIENDLY_DATES];
+    private static final String[] sFullFriendlyDates = new String[CACHED_FRIENDLY_DATES];
+    private static long sFriendlyDatesStart;
+    private static long sFriendlyDatesToday = -1;
+    private static Locale sFriendlyDatesLocale;
+    private static String sFriendlyDatesTimeZoneId;
+
     /**
      * This method returns the number of milliseconds (UTC time) for today's date at midnight in
      * the local time zone. For example, if you live in California and the day is September 20th,
@@ -188,6 +207,10 @@ public final class SunshineDateUtils {
      * For tomorrow:  "Tomorrow
      * For the next 5 days: "Wednesday" (just the day name)
      * For all days after that: "Mon, Jun 8" (Mon, 8 Jun in UK, for example)
+     * <p/>
+     * The strings of the days around today are cached, so a list binding the same days over and
+     * over, as the forecast list does while it scrolls, only formats each of them once a day.
+     * Changing the Locale or time zone formats them again.
      *
      * @param context               Context to use for resource localization
      * @param normalizedUtcMidnight The date in milliseconds (UTC midnight)
@@ -200,6 +223,55 @@ public final class SunshineDateUtils {
      */
     public static String getFriendlyDateString(Context context, long normalizedUtcMidnight, boolean showFullDate) {
 
+        /*
+         * As a basis for comparison, we use the number of days that have passed from the epoch
+         * until today.
+         */
+        long daysFromEpochToToday = elapsedDaysSinceEpoch(System.currentTimeMillis());
+        Locale locale = Locale.getDefault();
+        String timeZoneId = TimeZone.getDefault().getID();
+
+        synchronized (sFriendlyDatesLock) {
+            if (daysFromEpochToToday != sFriendlyDatesToday
+                    || !locale.equals(sFriendlyDatesLocale)
+                    || !timeZoneId.equals(sFriendlyDatesTimeZoneId)) {
+                /* It's a new day, or the user has changed their Locale or time zone */
+                Arrays.fill(sFriendlyDates, null);
+                Arrays.fill(sFullFriendlyDates, null);
+                sFriendlyDatesStart = (daysFromEpochToToday - 1) * DAY_IN_MILLIS;
+                sFriendlyDatesToday = daysFromEpochToToday;
+                sFriendlyDatesLocale = locale;
+                sFriendlyDatesTimeZoneId = timeZoneId;
+            }
+
+            if (!isDateNormalized(normalizedUtcMidnight)
+                    || normalizedUtcMidnight < sFriendlyDatesStart
+                    || normalizedUtcMidnight >= sFriendlyDatesStart
+                    + CACHED_FRIENDLY_DATES * DAY_IN_MILLIS) {
+                return formatFriendlyDateString(context, normalizedUtcMidnight, showFullDate,
+                        daysFromEpochToToday);
+            }
+
+            String[] friendlyDates = showFullDate ? sFullFriendlyDates : sFriendlyDates;
+            int index = (int) ((normalizedUtcMidnight - sFriendlyDatesStart) / DAY_IN_MILLIS);
+            if (friendlyDates[index] == null) {
+                friendlyDates[index] = formatFriendlyDateString(context, normalizedUtcMidnight,
+                        showFullDate, daysFromEpochToToday);
+            }
+            return friendlyDates[index];
+        }
+    }
+
+    /**
+     * Does the work of {@link #getFriendlyDateString(Context, long, boolean)}, without looking in
+     * the cache.
+     *
+     * @param daysFromEpochToToday The day to treat as today, in days since the epoch
+     */
+    private static String formatFriendlyDateString(Context context, long normalizedUtcMidnight,
+                                                   boolean showFullDate,
+                                                   long daysFromEpochToToday) {
+
         /*
          * NOTE: localDate should be localDateMidnightMillis and should be straight from the
          * database
@@ -217,18 +289,12 @@ public final class SunshineDateUtils {
          */
         long daysFromEpochToProvidedDate = elapsedDaysSinceEpoch(localDate);
 
-        /*
-         * As a basis for comparison, we use the number of days that have passed from the epoch
-         * until today.
-         */
-        long daysFromEpochToToday = elapsedDaysSinceEpoch(System.currentTimeMillis());
-
         if (daysFromEpochToProvidedDate == daysFromEpochToToday || showFullDate) {
             /*
              * If the date we're building the String for is today's date, the format
              * is "Today, June 24"
              */
-            String dayName = getDayName(context, localDate);
+            String dayName = getDayName(context, localDate, daysFromEpochToToday);
             String readableDate = getReadableDateString(context, localDate);
             if (daysFromEpochToProvidedDate - daysFromEpochToToday < 2) {
                 /*
@@ -248,7 +314,7 @@ public final class SunshineDateUtils {
             }
         } else if (daysFromEpochToProvidedDate < daysFromEpochToToday + 7) {
             /* If the input date is less than a week in the future, just return the day name. */
-            return getDayName(context, localDate);
+            return getDayName(context, localDate, daysFromEpochToToday);
         } else {
             int flags = DateUtils.FORMAT_SHOW_DATE
                     | DateUtils.FORMAT_NO_YEAR
@@ -280,18 +346,19 @@ public final class SunshineDateUtils {
      * Given a day, returns just the name to use for that day.
      *   E.g "today", "tomorrow", "Wednesday".
      *
-     * @param context      Context to use for resource localization
-     * @param dateInMillis The date in milliseconds (UTC time)
+     * @param context              Context to use for resource localization
+     * @param dateInMillis         The date in milliseconds (UTC time)
+     * @param daysFromEpochToToday The day to treat as today, in days since the epoch
      *
      * @return the string day of the week
      */
-    private static String getDayName(Context context, long dateInMillis) {
+    private static String getDayName(Context context, long dateInMillis,
+                                     long daysFromEpochToToday) {
         /*
          * If the date is today, return the localized version of "Today" instead of the actual
          * day name.
          */
         long daysFromEpochToProvidedDate = elapsedDaysSinceEpoch(dateInMillis);
-        long daysFromEpochToToday = elapsedDaysSinceEpoch(System.currentTimeMillis());
 
         int daysAfterToday = (int) (daysFromEpochToProvidedDate - daysFromEpochToToday);
 
@@ -131,6 +131,130 @@ public final class SunshineWeatherUtils {
         return String.format(context.getString(windFormat), windSpeed, direction);
     }
 
+    /* The lowest and highest condition ids OpenWeatherMap sends */
+    private static final int FIRST_WEATHER_ID = 200;
+    private static final int LAST_WEATHER_ID = 962;
+
+    /*
+     * Lookup tables indexed by (weatherId - FIRST_WEATHER_ID), holding the condition string and
+     * the small and large art of every condition. They are filled in once, when the class is
+     * loaded, so every lookup is a bounds check and an array read instead of a walk down a chain
+     * of comparisons. A 0 marks an id OpenWeatherMap doesn't define.
+     */
+    private static final int[] sConditionStringIds = new int[LAST_WEATHER_ID - FIRST_WEATHER_ID + 1];
+    private static final int[] sSmallArtIds = new int[LAST_WEATHER_ID - FIRST_WEATHER_ID + 1];
+    private static final int[] sLargeArtIds = new int[LAST_WEATHER_ID - FIRST_WEATHER_ID + 1];
+
+    static {
+        /*
+         * Based on weather code data for Open Weather Map.
+         * See http://openweathermap.org/weather-conditions for a list of all IDs
+         */
+        putCondition(200, 232, R.string.condition_2xx);
+        putCondition(300, 321, R.string.condition_3xx);
+        putCondition(500, 500, R.string.condition_500);
+        putCondition(501, 501, R.string.condition_501);
+        putCondition(502, 502, R.string.condition_502);
+        putCondition(503, 503, R.string.condition_503);
+        putCondition(504, 504, R.string.condition_504);
+        putCondition(511, 511, R.string.condition_511);
+        putCondition(520, 520, R.string.condition_520);
+        putCondition(531, 531, R.string.condition_531);
+        putCondition(600, 600, R.string.condition_600);
+        putCondition(601, 601, R.string.condition_601);
+        putCondition(602, 602, R.string.condition_602);
+        putCondition(611, 611, R.string.condition_611);
+        putCondition(612, 612, R.string.condition_612);
+        putCondition(615, 615, R.string.condition_615);
+        putCondition(616, 616, R.string.condition_616);
+        putCondition(620, 620, R.string.condition_620);
+        putCondition(621, 621, R.string.condition_621);
+        putCondition(622, 622, R.string.condition_622);
+        putCondition(701, 701, R.string.condition_701);
+        putCondition(711, 711, R.string.condition_711);
+        putCondition(721, 721, R.string.condition_721);
+        putCondition(731, 731, R.string.condition_731);
+        putCondition(741, 741, R.string.condition_741);
+        putCondition(751, 751, R.string.condition_751);
+        putCondition(761, 761, R.string.condition_761);
+        putCondition(762, 762, R.string.condition_762);
+        putCondition(771, 771, R.string.condition_771);
+        putCondition(781, 781, R.string.condition_781);
+        putCondition(800, 800, R.string.condition_800);
+        putCondition(801, 801, R.string.condition_801);
+        putCondition(802, 802, R.string.condition_802);
+        putCondition(803, 803, R.string.condition_803);
+        putCondition(804, 804, R.string.condition_804);
+        putCondition(900, 900, R.string.condition_900);
+        putCondition(901, 901, R.string.condition_901);
+        putCondition(902, 902, R.string.condition_902);
+        putCondition(903, 903, R.string.condition_903);
+        putCondition(904, 904, R.string.condition_904);
+        putCondition(905, 905, R.string.condition_905);
+        putCondition(906, 906, R.string.condition_906);
+        putCondition(951, 951, R.string.condition_951);
+        putCondition(952, 952, R.string.condition_952);
+        putCondition(953, 953, R.string.condition_953);
+        putCondition(954, 954, R.string.condition_954);
+        putCondition(955, 955, R.string.condition_955);
+        putCondition(956, 956, R.string.condition_956);
+        putCondition(957, 957, R.string.condition_957);
+        putCondition(958, 958, R.string.condition_958);
+        putCondition(959, 959, R.string.condition_959);
+        putCondition(960, 960, R.string.condition_960);
+        putCondition(961, 961, R.string.condition_961);
+        putCondition(962, 962, R.string.condition_962);
+
+        /*
+         * 761 (dust) is part of the fog range, and gets the fog art. If ranges ever overlap,
+         * the first one put wins.
+         */
+        putArt(200, 232, R.drawable.ic_storm, R.drawable.art_storm);
+        putArt(300, 321, R.drawable.ic_light_rain, R.drawable.art_light_rain);
+        putArt(500, 504, R.drawable.ic_rain, R.drawable.art_rain);
+        putArt(511, 511, R.drawable.ic_snow, R.drawable.art_snow);
+        putArt(520, 531, R.drawable.ic_rain, R.drawable.art_rain);
+        putArt(600, 622, R.drawable.ic_snow, R.drawable.art_snow);
+        putArt(701, 761, R.drawable.ic_fog, R.drawable.art_fog);
+        putArt(771, 771, R.drawable.ic_storm, R.drawable.art_storm);
+        putArt(781, 781, R.drawable.ic_storm, R.drawable.art_storm);
+        putArt(800, 800, R.drawable.ic_clear, R.drawable.art_clear);
+        putArt(801, 801, R.drawable.ic_light_clouds, R.drawable.art_light_clouds);
+        putArt(802, 804, R.drawable.ic_cloudy, R.drawable.art_clouds);
+        putArt(900, 906, R.drawable.ic_storm, R.drawable.art_storm);
+        putArt(958, 962, R.drawable.ic_storm, R.drawable.art_storm);
+        putArt(951, 957, R.drawable.ic_clear, R.drawable.art_clear);
+    }
+
+    private static void putCondition(int firstWeatherId, int lastWeatherId, int stringId) {
+        for (int weatherId = firstWeatherId; weatherId <= lastWeatherId; weatherId++) {
+            sConditionStringIds[weatherId - FIRST_WEATHER_ID] = stringId;
+        }
+    }
+
+    private static void putArt(int firstWeatherId, int lastWeatherId, int smallArtId,
+                               int largeArtId) {
+        for (int weatherId = firstWeatherId; weatherId <= lastWeatherId; weatherId++) {
+            int index = weatherId - FIRST_WEATHER_ID;
+            if (sSmallArtIds[index] == 0) {
+                sSmallArtIds[index] = smallArtId;
+                sLargeArtIds[index] = largeArtId;
+            }
+        }
+    }
+
+    /**
+     * Reads the entry for a weather condition from one of the lookup tables.
+     *
+     * @return The resource id, or 0 if OpenWeatherMap doesn't define the condition
+     */
+    private static int lookUp(int[] table, int weatherId) {
+        if (weatherId < FIRST_WEATHER_ID || weatherId > LAST_WEATHER_ID) {
+            return 0;
+        }
+        return table[weatherId - FIRST_WEATHER_ID];
+    }
+
     /**
      * Helper method to provide the string according to the weather
      * condition id returned by the OpenWeatherMap call.
@@ -139,175 +263,13 @@ public final class SunshineWeatherUtils {
      * @param weatherId from OpenWeatherMap API response
      *                  See http://openweathermap.org/weather-conditions for a list of all IDs
      *
-     * @return String for the weather condition, null if no relation is found.
+     * @return String for the weather condition, or "Unknown" with the id if no relation is found.
      */
     public static String getStringForWeatherCondition(Context context, int weatherId) {
-        int stringId;
-        if (weatherId >= 200 && weatherId <= 232) {
-            stringId = R.string.condition_2xx;
-        } else if (weatherId >= 300 && weatherId <= 321) {
-            stringId = R.string.condition_3xx;
-        } else switch (weatherId) {
-            case 500:
-                stringId = R.string.condition_500;
-                break;
-            case 501:
-                stringId = R.string.condition_501;
-                break;
-            case 502:
-                stringId = R.string.condition_502;
-                break;
-            case 503:
-                stringId = R.string.condition_503;
-                break;
-            case 504:
-                stringId = R.string.condition_504;
-                break;
-            case 511:
-                stringId = R.string.condition_511;
-                break;
-            case 520:
-                stringId = R.string.condition_520;
-                break;
-            case 531:
-                stringId = R.string.condition_531;
-                break;
-            case 600:
-                stringId = R.string.condition_600;
-                break;
-            case 601:
-                stringId = R.string.condition_601;
-                break;
-            case 602:
-                stringId = R.string.condition_602;
-                break;
-            case 611:
-                stringId = R.string.condition_611;
-                break;
-            case 612:
-                stringId = R.string.condition_612;
-                break;
-            case 615:
-                stringId = R.string.condition_615;
-                break;
-            case 616:
-                stringId = R.string.condition_616;
-                break;
-            case 620:
-                stringId = R.string.condition_620;
-                break;
-            case 621:
-                stringId = R.string.condition_621;
-                break;
-            case 622:
-                stringId = R.string.condition_622;
-                break;
-            case 701:
-                stringId = R.string.condition_701;
-                break;
-            case 711:
-                stringId = R.string.condition_711;
-                break;
-            case 721:
-                stringId = R.string.condition_721;
-                break;
-            case 731:
-                stringId = R.string.condition_731;
-                break;
-            case 741:
-                stringId = R.string.condition_741;
-                break;
-            case 751:
-                stringId = R.string.condition_751;
-                break;
-            case 761:
-                stringId = R.string.condition_761;
-                break;
-            case 762:
-                stringId = R.string.condition_762;
-                break;
-            case 771:
-                stringId = R.string.condition_771;
-                break;
-            case 781:
-                stringId = R.string.condition_781;
-                break;
-            case 800:
-                stringId = R.string.condition_800;
-                break;
-            case 801:
-                stringId = R.string.condition_801;
-                break;
-            case 802:
-                stringId = R.string.condition_802;
-                break;
-            case 803:
-                stringId = R.string.condition_803;
-                break;
-            case 804:
-                stringId = R.string.condition_804;
-                break;
-            case 900:
-                stringId = R.string.condition_900;
-                break;
-            case 901:
-                stringId = R.string.condition_901;
-                break;
-            case 902:
-                stringId = R.string.condition_902;
-                break;
-            case 903:
-                stringId = R.string.condition_903;
-                break;
-            case 904:
-                stringId = R.string.condition_904;
-                break;
-            case 905:
-                stringId = R.string.condition_905;
-                break;
-            case 906:
-                stringId = R.string.condition_906;
-                break;
-            case 951:
-                stringId = R.string.condition_951;
-                break;
-            case 952:
-                stringId = R.string.condition_952;
-                break;
-            case 953:
-                stringId = R.string.condition_953;
-                break;
-            case 954:
-                stringId = R.string.condition_954;
-                break;
-            case 955:
-                stringId = R.string.condition_955;
-                break;
-            case 956:
-                stringId = R.string.condition_956;
-                break;
-            case 957:
-                stringId = R.string.condition_957;
-                break;
-            case 958:
-                stringId = R.string.condition_958;
-                break;
-            case 959:
-                stringId = R.string.condition_959;
-                break;
-            case 960:
-                stringId = R.string.condition_960;
-                break;
-            case 961:
-                stringId = R.string.condition_961;
-                break;
-            case 962:
-                stringId = R.string.condition_962;
-                break;
-            default:
-                return context.getString(R.string.condition_unknown, weatherId);
+        int stringId = lookUp(sConditionStringIds, weatherId);
+        if (stringId == 0) {
+            return context.getString(R.string.condition_unknown, weatherId);
         }
-
         return context.getString(stringId);
     }
 
@@ -323,45 +285,15 @@ public final class SunshineWeatherUtils {
      * @param weatherId from OpenWeatherMap API response
      *                  See http://openweathermap.org/weather-conditions for a list of all IDs
      *
-     * @return resource id for the corresponding icon. -1 if no relation is found.
+     * @return resource id for the corresponding icon. The storm icon if no relation is found.
      */
     public static int getSmallArtResourceIdForWeatherCondition(int weatherId) {
-
-        /*
-         * Based on weather code data for Open Weather Map.
-         */
-        if (weatherId >= 200 && weatherId <= 232) {
-            return R.drawable.ic_storm;
-        } else if (weatherId >= 300 && weatherId <= 321) {
-            return R.drawable.ic_light_rain;
-        } else if (weatherId >= 500 && weatherId <= 504) {
-            return R.drawable.ic_rain;
-        } else if (weatherId == 511) {
-            return R.drawable.ic_snow;
-        } else if (weatherId >= 520 && weatherId <= 531) {
-            return R.drawable.ic_rain;
-        } else if (weatherId >= 600 && weatherId <= 622) {
-            return R.drawable.ic_snow;
-        } else if (weatherId >= 701 && weatherId <= 761) {
-            return R.drawable.ic_fog;
-        } else if (weatherId == 761 || weatherId == 771 || weatherId == 781) {
-            return R.drawable.ic_storm;
-        } else if (weatherId == 800) {
-            return R.drawable.ic_clear;
-        } else if (weatherId == 801) {
-            return R.drawable.ic_light_clouds;
-        } else if (weatherId >= 802 && weatherId <= 804) {
-            return R.drawable.ic_cloudy;
-        } else if (weatherId >= 900 && weatherId <= 906) {
+        int smallArtId = lookUp(sSmallArtIds, weatherId);
+        if (smallArtId == 0) {
+            Log.e(LOG_TAG, "Unknown Weather: " + weatherId);
             return R.drawable.ic_storm;
-        } else if (weatherId >= 958 && weatherId <= 962) {
-            return R.drawable.ic_storm;
-        } else if (weatherId >= 951 && weatherId <= 957) {
-            return R.drawable.ic_clear;
         }
-
-        Log.e(LOG_TAG, "Unknown Weather: " + weatherId);
-        return R.drawable.ic_storm;
+        return smallArtId;
     }
 
     /**
@@ -376,44 +308,14 @@ public final class SunshineWeatherUtils {
      * @param weatherId from OpenWeatherMap API response
      *                  See http://openweathermap.org/weather-conditions for a list of all IDs
      *
-     * @return resource ID for the corresponding icon. -1 if no relation is found.
+     * @return resource ID for the corresponding icon. The storm art if no relation is found.
      */
     public static int getLargeArtResourceIdForWeatherCondition(int weatherId) {
-
-        /*
-         * Based on weather code data for Open Weather Map.
-         */
-        if (weatherId >= 200 && weatherId <= 232) {
-            return R.drawable.art_storm;
-        } else if (weatherId >= 300 && weatherId <= 321) {
-            return R.drawable.art_light_rain;
-        } else if (weatherId >= 500 && weatherId <= 504) {
-            return R.drawable.art_rain;
-        } else if (weatherId == 511) {
-            return R.drawable.art_snow;
-        } else if (weatherId >= 520 && weatherId <= 531) {
-            return R.drawable.art_rain;
-        } else if (weatherId >= 600 && weatherId <= 622) {
-            return R.drawable.art_snow;
-        } else if (weatherId >= 701 && weatherId <= 761) {
-            return R.drawable.art_fog;
-        } else if (weatherId == 761 || weatherId == 771 || weatherId == 781) {
-            return R.drawable.art_storm;
-        } else if (weatherId == 800) {
-            return R.drawable.art_clear;
-        } else if (weatherId == 801) {
-            return R.drawable.art_light_clouds;
-        } else if (weatherId >= 802 && weatherId <= 804) {
-            return R.drawable.art_clouds;
-        } else if (weatherId >= 900 && weatherId <= 906) {
+        int largeArtId = lookUp(sLargeArtIds, weatherId);
+        if (largeArtId == 0) {
+            Log.e(LOG_TAG, "Unknown Weather: " + weatherId);
             return R.drawable.art_storm;
-        } else if (weatherId >= 958 && weatherId <= 962) {
-            return R.drawable.art_storm;
-        } else if (weatherId >= 951 && weatherId <= 957) {
-            return R.drawable.art_clear;
         }
-
-        Log.e(LOG_TAG, "Unknown Weather: " + weatherId);
-        return R.drawable.art_storm;
+        return largeArtId;
     }
-}
\ No newline at end of file
+}
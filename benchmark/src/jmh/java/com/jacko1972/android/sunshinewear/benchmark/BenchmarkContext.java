@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear.benchmark;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.preference.PreferenceManager;
+
+import com.jacko1972.android.sunshinewear.R;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Builds the Context the benchmarks pass to the utilities. Its strings are read from the app's
+ * own res/values/strings.xml, which the build copies into the benchmark resources, so every
+ * format string is the one shipped in the app.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * @param metric Whether the user prefers metric units
+     * @return A Context serving the app's strings and preferences
+     */
+    static Context create(boolean metric) {
+        Map<String, String> stringsByName = readStrings();
+
+        Map<Integer, String> strings = new HashMap<>();
+        for (Field field : R.string.class.getFields()) {
+            String value = stringsByName.get(field.getName());
+            if (value == null) {
+                throw new IllegalStateException("strings.xml has no " + field.getName());
+            }
+            try {
+                strings.put(field.getInt(null), value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        Context context = new Context(new Resources(strings));
+        PreferenceManager.getDefaultSharedPreferences(context).edit()
+                .putString(context.getString(R.string.pref_units_key), context.getString(metric
+                        ? R.string.pref_units_metric
+                        : R.string.pref_units_imperial))
+                .apply();
+        return context;
+    }
+
+    private static Map<String, String> readStrings() {
+        InputStream in = BenchmarkContext.class.getResourceAsStream("/strings.xml");
+        if (in == null) {
+            throw new IllegalStateException("strings.xml is missing from the benchmark resources");
+        }
+        try {
+            Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in);
+            NodeList elements = document.getElementsByTagName("string");
+            Map<String, String> strings = new HashMap<>();
+            for (int i = 0; i < elements.getLength(); i++) {
+                Element element = (Element) elements.item(i);
+                strings.put(element.getAttribute("name"), unescape(element.getTextContent()));
+            }
+            return strings;
+        } catch (Exception e) {
+            throw new IllegalStateException("Couldn't read strings.xml", e);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Applies the parts of aapt's string processing our strings rely on: whitespace is collapsed
+     * and trimmed, and backslash escapes are resolved.
+     */
+    private static String unescape(String raw) {
+        String collapsed = raw.trim().replaceAll("\\s+", " ");
+        StringBuilder value = new StringBuilder(collapsed.length());
+        for (int i = 0; i < collapsed.length(); i++) {
+            char c = collapsed.charAt(i);
+            if (c != '\\' || i + 1 == collapsed.length()) {
+                value.append(c);
+                continue;
+            }
+            char escaped = collapsed.charAt(++i);
+            switch (escaped) {
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'u':
+                    value.append((char) Integer.parseInt(collapsed.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                default:
+                    value.append(escaped);
+                    break;
+            }
+        }
+        return value.toString();
+    }
+}
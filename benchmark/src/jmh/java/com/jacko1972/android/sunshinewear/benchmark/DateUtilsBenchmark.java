@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear.benchmark;
+
+import android.content.Context;
+
+import com.jacko1972.android.sunshinewear.utilities.SunshineDateUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The date math and formatting done for every row of the forecast list. The friendly date takes
+ * a different path for today, tomorrow, the rest of the week and later days, so each is measured
+ * on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DateUtilsBenchmark {
+
+    /* How many days after today the formatted date is */
+    @Param({"0", "1", "4", "10"})
+    public int daysFromToday;
+
+    private Context mContext;
+    private long mNormalizedDate;
+    private long mTimestamp;
+
+    @Setup
+    public void setUp() {
+        mContext = BenchmarkContext.create(true);
+        mNormalizedDate = SunshineDateUtils.getNormalizedUtcDateForToday()
+                + daysFromToday * SunshineDateUtils.DAY_IN_MILLIS;
+        mTimestamp = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public long normalizeDate() {
+        return SunshineDateUtils.normalizeDate(mTimestamp);
+    }
+
+    @Benchmark
+    public long normalizedUtcDateForToday() {
+        return SunshineDateUtils.getNormalizedUtcDateForToday();
+    }
+
+    @Benchmark
+    public String friendlyDate() {
+        return SunshineDateUtils.getFriendlyDateString(mContext, mNormalizedDate, false);
+    }
+
+    @Benchmark
+    public String friendlyDateFull() {
+        return SunshineDateUtils.getFriendlyDateString(mContext, mNormalizedDate, true);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear.benchmark;
+
+import android.content.Context;
+
+import com.jacko1972.android.sunshinewear.data.ForecastBatch;
+import com.jacko1972.android.sunshinewear.utilities.OpenWeatherJsonUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a 14 day forecast, as the sync does for every location, both from the response stream
+ * and from a String.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ForecastJsonBenchmark {
+
+    private Context mContext;
+    private byte[] mForecastBytes;
+    private String mForecastJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        mContext = BenchmarkContext.create(true);
+
+        InputStream in = ForecastJsonBenchmark.class.getResourceAsStream("/forecast.json");
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            mForecastBytes = out.toByteArray();
+        } finally {
+            in.close();
+        }
+        mForecastJson = new String(mForecastBytes, "UTF-8");
+    }
+
+    @Benchmark
+    public ForecastBatch parseStream() throws IOException {
+        return OpenWeatherJsonUtils.getForecastFromJson(mContext,
+                new ByteArrayInputStream(mForecastBytes));
+    }
+
+    @Benchmark
+    public ForecastBatch parseString() throws IOException {
+        return OpenWeatherJsonUtils.getForecastFromJson(mContext, mForecastJson);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear.benchmark;
+
+import android.content.Context;
+
+import com.jacko1972.android.sunshinewear.utilities.SunshineWeatherUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The formatting and condition lookups done for every row of the forecast list and the detail
+ * screen. The lookups index tables by condition id, and run over every id OpenWeatherMap sends
+ * so that every range of those tables is covered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WeatherUtilsBenchmark {
+
+    /* Every condition id listed on http://openweathermap.org/weather-conditions */
+    private static final int[] WEATHER_IDS = {
+            200, 201, 202, 210, 211, 212, 221, 230, 231, 232,
+            300, 301, 302, 310, 311, 312, 313, 314, 321,
+            500, 501, 502, 503, 504, 511, 520, 521, 522, 531,
+            600, 601, 602, 611, 612, 615, 616, 620, 621, 622,
+            701, 711, 721, 731, 741, 751, 761, 762, 771, 781,
+            800, 801, 802, 803, 804,
+            900, 901, 902, 903, 904, 905, 906,
+            951, 952, 953, 954, 955, 956, 957, 958, 959, 960, 961, 962
+    };
+
+    @Param({"true", "false"})
+    public boolean metric;
+
+    private Context mContext;
+
+    @Setup
+    public void setUp() {
+        mContext = BenchmarkContext.create(metric);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(73)
+    public void conditionString(Blackhole blackhole) {
+        for (int weatherId : WEATHER_IDS) {
+            blackhole.consume(SunshineWeatherUtils.getStringForWeatherCondition(mContext, weatherId));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(73)
+    public void smallArt(Blackhole blackhole) {
+        for (int weatherId : WEATHER_IDS) {
+            blackhole.consume(SunshineWeatherUtils.getSmallArtResourceIdForWeatherCondition(weatherId));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(73)
+    public void largeArt(Blackhole blackhole) {
+        for (int weatherId : WEATHER_IDS) {
+            blackhole.consume(SunshineWeatherUtils.getLargeArtResourceIdForWeatherCondition(weatherId));
+        }
+    }
+
+    @Benchmark
+    public String highLows() {
+        return SunshineWeatherUtils.formatHighLows(mContext, 21.4, 12.6);
+    }
+
+    @Benchmark
+    public String wind() {
+        return SunshineWeatherUtils.getFormattedWind(mContext, 14.2f, 215f);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.content;
+
+import android.content.res.Resources;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM stand-in for android.content.Context, offering only the resource and preference lookups
+ * the benchmarked utilities make.
+ */
+public class Context {
+
+    private final Resources mResources;
+    private final Map<String, SharedPreferences> mSharedPreferences = new HashMap<>();
+
+    public Context(Resources resources) {
+        mResources = resources;
+    }
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public String getPackageName() {
+        return "com.jacko1972.android.sunshinewear";
+    }
+
+    public Resources getResources() {
+        return mResources;
+    }
+
+    public final String getString(int resId) {
+        return mResources.getString(resId);
+    }
+
+    public final String getString(int resId, Object... formatArgs) {
+        return mResources.getString(resId, formatArgs);
+    }
+
+    public synchronized SharedPreferences getSharedPreferences(String name, int mode) {
+        SharedPreferences sharedPreferences = mSharedPreferences.get(name);
+        if (sharedPreferences == null) {
+            sharedPreferences = new SharedPreferences();
+            mSharedPreferences.put(name, sharedPreferences);
+        }
+        return sharedPreferences;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.content;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM stand-in for android.content.SharedPreferences, kept in memory. Unlike the real interface
+ * this is a class, as the benchmarks only ever need the one implementation.
+ */
+public class SharedPreferences {
+
+    private final Map<String, Object> mValues = new HashMap<>();
+
+    public synchronized Map<String, ?> getAll() {
+        return Collections.unmodifiableMap(new HashMap<>(mValues));
+    }
+
+    public synchronized String getString(String key, String defValue) {
+        Object value = mValues.get(key);
+        return value != null ? (String) value : defValue;
+    }
+
+    public synchronized long getLong(String key, long defValue) {
+        Object value = mValues.get(key);
+        return value != null ? (Long) value : defValue;
+    }
+
+    public synchronized boolean getBoolean(String key, boolean defValue) {
+        Object value = mValues.get(key);
+        return value != null ? (Boolean) value : defValue;
+    }
+
+    public synchronized boolean contains(String key) {
+        return mValues.containsKey(key);
+    }
+
+    public Editor edit() {
+        return new Editor();
+    }
+
+    /**
+     * Collects changes and applies them all at once, like the real Editor.
+     */
+    public class Editor {
+
+        private final Map<String, Object> mChanges = new HashMap<>();
+
+        public Editor putString(String key, String value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        public Editor putLong(String key, long value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        public Editor putBoolean(String key, boolean value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        public Editor remove(String key) {
+            mChanges.put(key, null);
+            return this;
+        }
+
+        public void apply() {
+            commit();
+        }
+
+        public boolean commit() {
+            synchronized (SharedPreferences.this) {
+                for (Map.Entry<String, Object> change : mChanges.entrySet()) {
+                    if (change.getValue() == null) {
+                        mValues.remove(change.getKey());
+                    } else {
+                        mValues.put(change.getKey(), change.getValue());
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
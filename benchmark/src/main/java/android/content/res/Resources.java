@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.content.res;
+
+import java.util.Map;
+
+/**
+ * JVM stand-in for android.content.res.Resources, serving the strings it was created with.
+ */
+public class Resources {
+
+    private final Map<Integer, String> mStrings;
+
+    /**
+     * @param strings The value of each string resource, by resource id
+     */
+    public Resources(Map<Integer, String> strings) {
+        mStrings = strings;
+    }
+
+    public String getString(int id) {
+        String string = mStrings.get(id);
+        if (string == null) {
+            throw new IllegalArgumentException(
+                    "String resource ID #0x" + Integer.toHexString(id) + " not found");
+        }
+        return string;
+    }
+
+    public String getString(int id, Object... formatArgs) {
+        return String.format(getString(id), formatArgs);
+    }
+}
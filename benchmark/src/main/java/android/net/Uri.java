@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.net;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JVM stand-in for android.net.Uri, handling the hierarchical content:// URIs WeatherContract
+ * builds: a scheme and authority followed by path segments, without a query or fragment.
+ */
+public final class Uri {
+
+    private final String mPrefix;
+    private final List<String> mPathSegments;
+
+    private Uri(String prefix, List<String> pathSegments) {
+        mPrefix = prefix;
+        mPathSegments = Collections.unmodifiableList(pathSegments);
+    }
+
+    public static Uri parse(String uriString) {
+        int authorityStart = uriString.indexOf("://") + 3;
+        int pathStart = uriString.indexOf('/', authorityStart);
+        if (pathStart < 0) {
+            return new Uri(uriString, new ArrayList<String>());
+        }
+        List<String> pathSegments = new ArrayList<>();
+        for (String segment : uriString.substring(pathStart + 1).split("/")) {
+            if (!segment.isEmpty()) {
+                pathSegments.add(segment);
+            }
+        }
+        return new Uri(uriString.substring(0, pathStart), pathSegments);
+    }
+
+    public List<String> getPathSegments() {
+        return mPathSegments;
+    }
+
+    public Builder buildUpon() {
+        return new Builder(mPrefix, mPathSegments);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder uri = new StringBuilder(mPrefix);
+        for (String segment : mPathSegments) {
+            uri.append('/').append(segment);
+        }
+        return uri.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Uri && toString().equals(o.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+    public static final class Builder {
+
+        private final String mPrefix;
+        private final List<String> mPathSegments;
+
+        Builder(String prefix, List<String> pathSegments) {
+            mPrefix = prefix;
+            mPathSegments = new ArrayList<>(pathSegments);
+        }
+
+        public Builder appendPath(String newSegment) {
+            mPathSegments.add(newSegment);
+            return this;
+        }
+
+        public Uri build() {
+            return new Uri(mPrefix, new ArrayList<>(mPathSegments));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM stand-in for android.os.Bundle, offering the primitive and array accessors ForecastBatch
+ * uses.
+ */
+public final class Bundle {
+
+    private final Map<String, Object> mValues = new HashMap<>();
+
+    public void putInt(String key, int value) {
+        mValues.put(key, value);
+    }
+
+    public int getInt(String key) {
+        Object value = mValues.get(key);
+        return value != null ? (Integer) value : 0;
+    }
+
+    public void putDouble(String key, double value) {
+        mValues.put(key, value);
+    }
+
+    public double getDouble(String key) {
+        Object value = mValues.get(key);
+        return value != null ? (Double) value : 0;
+    }
+
+    public void putIntArray(String key, int[] value) {
+        mValues.put(key, value);
+    }
+
+    public int[] getIntArray(String key) {
+        return (int[]) mValues.get(key);
+    }
+
+    public void putLongArray(String key, long[] value) {
+        mValues.put(key, value);
+    }
+
+    public long[] getLongArray(String key) {
+        return (long[]) mValues.get(key);
+    }
+
+    public void putDoubleArray(String key, double[] value) {
+        mValues.put(key, value);
+    }
+
+    public double[] getDoubleArray(String key) {
+        return (double[]) mValues.get(key);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear;
+
+/**
+ * Stands in for the R class aapt generates for the app, with only the resources the benchmarked
+ * utilities refer to. The ids are made up; BenchmarkContext looks the strings up by field name.
+ */
+public final class R {
+
+    public static final class drawable {
+        public static final int art_clear = 0x7f020000;
+        public static final int art_clouds = 0x7f020001;
+        public static final int art_fog = 0x7f020002;
+        public static final int art_light_clouds = 0x7f020003;
+        public static final int art_light_rain = 0x7f020004;
+        public static final int art_rain = 0x7f020005;
+        public static final int art_snow = 0x7f020006;
+        public static final int art_storm = 0x7f020007;
+        public static final int ic_clear = 0x7f020008;
+        public static final int ic_cloudy = 0x7f020009;
+        public static final int ic_fog = 0x7f02000a;
+        public static final int ic_light_clouds = 0x7f02000b;
+        public static final int ic_light_rain = 0x7f02000c;
+        public static final int ic_rain = 0x7f02000d;
+        public static final int ic_snow = 0x7f02000e;
+        public static final int ic_storm = 0x7f02000f;
+    }
+
+    public static final class string {
+        public static final int condition_2xx = 0x7f060000;
+        public static final int condition_3xx = 0x7f060001;
+        public static final int condition_500 = 0x7f060002;
+        public static final int condition_501 = 0x7f060003;
+        public static final int condition_502 = 0x7f060004;
+        public static final int condition_503 = 0x7f060005;
+        public static final int condition_504 = 0x7f060006;
+        public static final int condition_511 = 0x7f060007;
+        public static final int condition_520 = 0x7f060008;
+        public static final int condition_531 = 0x7f060009;
+        public static final int condition_600 = 0x7f06000a;
+        public static final int condition_601 = 0x7f06000b;
+        public static final int condition_602 = 0x7f06000c;
+        public static final int condition_611 = 0x7f06000d;
+        public static final int condition_612 = 0x7f06000e;
+        public static final int condition_615 = 0x7f06000f;
+        public static final int condition_616 = 0x7f060010;
+        public static final int condition_620 = 0x7f060011;
+        public static final int condition_621 = 0x7f060012;
+        public static final int condition_622 = 0x7f060013;
+        public static final int condition_701 = 0x7f060014;
+        public static final int condition_711 = 0x7f060015;
+        public static final int condition_721 = 0x7f060016;
+        public static final int condition_731 = 0x7f060017;
+        public static final int condition_741 = 0x7f060018;
+        public static final int condition_751 = 0x7f060019;
+        public static final int condition_761 = 0x7f06001a;
+        public static final int condition_762 = 0x7f06001b;
+        public static final int condition_771 = 0x7f06001c;
+        public static final int condition_781 = 0x7f06001d;
+        public static final int condition_800 = 0x7f06001e;
+        public static final int condition_801 = 0x7f06001f;
+        public static final int condition_802 = 0x7f060020;
+        public static final int condition_803 = 0x7f060021;
+        public static final int condition_804 = 0x7f060022;
+        public static final int condition_900 = 0x7f060023;
+        public static final int condition_901 = 0x7f060024;
+        public static final int condition_902 = 0x7f060025;
+        public static final int condition_903 = 0x7f060026;
+        public static final int condition_904 = 0x7f060027;
+        public static final int condition_905 = 0x7f060028;
+        public static final int condition_906 = 0x7f060029;
+        public static final int condition_951 = 0x7f06002a;
+        public static final int condition_952 = 0x7f06002b;
+        public static final int condition_953 = 0x7f06002c;
+        public static final int condition_954 = 0x7f06002d;
+        public static final int condition_955 = 0x7f06002e;
+        public static final int condition_956 = 0x7f06002f;
+        public static final int condition_957 = 0x7f060030;
+        public static final int condition_958 = 0x7f060031;
+        public static final int condition_959 = 0x7f060032;
+        public static final int condition_960 = 0x7f060033;
+        public static final int condition_961 = 0x7f060034;
+        public static final int condition_962 = 0x7f060035;
+        public static final int condition_unknown = 0x7f060036;
+        public static final int format_temperature = 0x7f060037;
+        public static final int format_wind_kmh = 0x7f060038;
+        public static final int format_wind_mph = 0x7f060039;
+        public static final int pref_units_imperial = 0x7f06003a;
+        public static final int pref_units_key = 0x7f06003b;
+        public static final int pref_units_metric = 0x7f06003c;
+        public static final int today = 0x7f06003d;
+        public static final int tomorrow = 0x7f06003e;
+    }
+}
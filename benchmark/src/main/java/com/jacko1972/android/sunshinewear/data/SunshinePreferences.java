@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import com.jacko1972.android.sunshinewear.R;
+
+/**
+ * Stands in for the app's SunshinePreferences, which can't be compiled on its own as it reaches
+ * into the sync package. isMetric is copied from the app, so formatting is benchmarked with the
+ * same preference lookup it makes on a device.
+ */
+public final class SunshinePreferences {
+
+    /**
+     * Returns true if the user has selected metric temperature display.
+     *
+     * @param context Context used to get the SharedPreferences
+     * @return true if metric display should be used, false if imperial display should be used
+     */
+    public static boolean isMetric(Context context) {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+
+        String keyForUnits = context.getString(R.string.pref_units_key);
+        String defaultUnits = context.getString(R.string.pref_units_metric);
+        String preferredUnits = sp.getString(keyForUnits, defaultUnits);
+        String metric = context.getString(R.string.pref_units_metric);
+
+        boolean userPrefersMetric = false;
+        if (metric.equals(preferredUnits)) {
+            userPrefersMetric = true;
+        }
+
+        return userPrefersMetric;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds up how long the watch face takes to draw its frames, so the cost of a rendering mode can
+ * be read from logcat. Only used from the UI thread.
+ */
+final class FrameCostCounter {
+
+    private final String mName;
+
+    private int mFrames;
+    private long mTotalNanos;
+    private long mMaxNanos;
+
+    FrameCostCounter(String name) {
+        mName = name;
+    }
+
+    /**
+     * Records one frame.
+     *
+     * @param startNanos System#nanoTime from when the frame started drawing
+     */
+    void record(long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        mFrames++;
+        mTotalNanos += nanos;
+        mMaxNanos = Math.max(mMaxNanos, nanos);
+    }
+
+    int getFrameCount() {
+        return mFrames;
+    }
+
+    long getAverageMicros() {
+        return mFrames == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(mTotalNanos / mFrames);
+    }
+
+    long getMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(mMaxNanos);
+    }
+
+    void reset() {
+        mFrames = 0;
+        mTotalNanos = 0;
+        mMaxNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return mName + ": " + mFrames + " frames, average " + getAverageMicros()
+                + " us, max " + getMaxMicros() + " us";
+    }
+}
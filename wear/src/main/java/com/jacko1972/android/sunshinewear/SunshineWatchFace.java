@@ -31,6 +31,7 @@ import android.graphics.Typeface;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.wearable.watchface.CanvasWatchFaceService;
@@ -82,9 +83,45 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
      */
     private static final int MSG_UPDATE_TIME = 0;
 
-    public static String lowTemp = "0°";
-    public static String highTemp = "0°";
-    public static Bitmap weatherIcon = null;
+    /**
+     * Handler message id for redrawing once new weather has been published.
+     */
+    private static final int MSG_WEATHER_CHANGED = 1;
+
+    /**
+     * Handler message id for asking the phone for fresh weather.
+     */
+    private static final int MSG_REQUEST_WEATHER = 2;
+
+    /**
+     * How long we wait after a tap before asking the phone for weather, so that a burst of taps
+     * becomes a single request.
+     */
+    private static final long WEATHER_REQUEST_DEBOUNCE_MS = TimeUnit.SECONDS.toMillis(2);
+
+    /**
+     * The shortest time between two requests for weather. Requests made sooner are put off until
+     * this much time has passed.
+     */
+    private static final long MIN_WEATHER_REQUEST_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * The text shown until the first weather data arrives from the phone.
+     */
+    private static final String REQUESTING_TEXT = "Requesting...";
+
+    /**
+     * The widest time we draw, used to measure the time once. The digital font is monospaced, so
+     * every time has the same bounds.
+     */
+    private static final String TIME_TEMPLATE = "00:00:00";
+    private static final String AMBIENT_TIME_TEMPLATE = "00:00";
+
+    /**
+     * How far, in pixels, the ambient face is moved around on screens that need burn-in
+     * protection. It moves to the next of four positions every minute.
+     */
+    private static final int BURN_IN_OFFSET_PX = 4;
 
     @Override
     public Engine onCreateEngine() {
@@ -106,6 +143,12 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
                     case MSG_UPDATE_TIME:
                         engine.handleUpdateTimeMessage();
                         break;
+                    case MSG_WEATHER_CHANGED:
+                        engine.handleWeatherChangedMessage();
+                        break;
+                    case MSG_REQUEST_WEATHER:
+                        engine.handleRequestWeatherMessage();
+                        break;
                 }
             }
         }
@@ -123,15 +166,61 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
         TextPaint mErrorPaint;
         boolean mAmbient;
         Calendar mCalendar;
-        private SimpleDateFormat timeFormat;
-        private SimpleDateFormat ambientTimeFormat;
         private SimpleDateFormat dateFormat;
-        private long currentTime;
         private static final String TAG = "Engine";
+
+        /*
+         * Everything onDraw needs is allocated up front, so that drawing a frame creates no
+         * garbage. The time is written digit by digit into mTimeChars, as HH:mm:ss, and the
+         * ambient time is the first five characters of it.
+         */
+        private final char[] mTimeChars = TIME_TEMPLATE.toCharArray();
+        private final Rect mTimeBounds = new Rect();
+        private final Rect mAmbientTimeBounds = new Rect();
+        private final Rect mDateBounds = new Rect();
+        private final Rect mLowBounds = new Rect();
+        private final Rect mHighBounds = new Rect();
+        private final Rect mErrorBounds = new Rect();
+
+        /*
+         * The date only changes once a day, so it is formatted and measured when the day changes
+         * and not on every frame. mDateDay is the year and day of year it was formatted for, or
+         * -1 if it needs formatting again.
+         */
+        private String mDateText;
+        private int mDateDay = -1;
+
+        /*
+         * The weather last drawn. The static layer is only drawn again when a snapshot with a
+         * different version is published.
+         */
+        private WeatherSnapshot mWeather;
+
+        /*
+         * The listener service publishes weather on a binder thread, so all we do there is pass
+         * the news on to the UI thread.
+         */
+        private final WeatherSnapshot.Listener mWeatherListener = new WeatherSnapshot.Listener() {
+            @Override
+            public void onWeatherChanged(WeatherSnapshot snapshot) {
+                mUpdateTimeHandler.sendEmptyMessage(MSG_WEATHER_CHANGED);
+            }
+        };
+
+        /*
+         * Everything but the time only changes when the weather, the day or the ambient mode
+         * changes, so it is drawn once into mStaticLayer. Each frame then copies that layer to the
+         * screen and draws the time over it, rather than drawing the background, divider, date,
+         * icon and temperatures over again every second.
+         */
+        private Bitmap mStaticLayer;
+        private Canvas mStaticCanvas;
+        private boolean mStaticLayerDirty = true;
+
         final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                updateTimeZone();
                 invalidate();
             }
         };
@@ -141,6 +230,26 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
          * disable anti-aliasing in ambient mode.
          */
         boolean mLowBitAmbient;
+
+        /**
+         * Whether the display needs burn-in protection in ambient mode. When true, we move the
+         * ambient face by a few pixels every minute so no pixel stays lit for long.
+         */
+        boolean mBurnInProtection;
+
+        /*
+         * The digits of the time are drawn once into an atlas per mode, with the paint of that
+         * mode, and then just copied to the screen every second, or every minute in ambient mode.
+         * Each atlas is created on the first frame of its mode, and again whenever the time
+         * paint or the display properties change.
+         */
+        private TimeGlyphCache mInteractiveGlyphs;
+        private TimeGlyphCache mAmbientGlyphs;
+
+        /* How long frames take to draw in each mode, logged whenever the mode changes */
+        private final FrameCostCounter mInteractiveFrameCost = new FrameCostCounter("Interactive");
+        private final FrameCostCounter mAmbientFrameCost = new FrameCostCounter("Ambient");
+
         Resources resources;
         private GoogleApiClient googleClient;
 
@@ -166,8 +275,6 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
             mHighPaint = new TextPaint();
             mErrorPaint = new TextPaint();
 
-            timeFormat = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
-            ambientTimeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
             dateFormat = new SimpleDateFormat("EEE, MMM dd yyyy", Locale.getDefault());
 
             mBackgroundPaint.setColor(resources.getColor(R.color.colorPrimary));
@@ -180,6 +287,10 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
 
             mCalendar = Calendar.getInstance();
 
+            measureFixedText();
+
+            WeatherSnapshot.addListener(mWeatherListener);
+
             googleClient = new GoogleApiClient.Builder(SunshineWatchFace.this)
                     .addApi(Wearable.API)
                     .addConnectionCallbacks(this)
@@ -189,6 +300,36 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
             googleClient.connect();
         }
 
+        /* When the last request for weather was sent, in SystemClock#elapsedRealtime time */
+        private long mLastWeatherRequestMillis = -MIN_WEATHER_REQUEST_INTERVAL_MS;
+
+        /**
+         * Asks the phone for fresh weather after the debounce delay. Calling this again before
+         * the request was sent doesn't add a request, it only starts the delay over.
+         */
+        private void requestWeatherUpdate() {
+            mUpdateTimeHandler.removeMessages(MSG_REQUEST_WEATHER);
+            mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_REQUEST_WEATHER, WEATHER_REQUEST_DEBOUNCE_MS);
+        }
+
+        /**
+         * Sends the request for weather, or puts it off if the last one was sent too recently.
+         */
+        private void handleRequestWeatherMessage() {
+            long sinceLastRequest = SystemClock.elapsedRealtime() - mLastWeatherRequestMillis;
+            if (sinceLastRequest < MIN_WEATHER_REQUEST_INTERVAL_MS) {
+                mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_REQUEST_WEATHER,
+                        MIN_WEATHER_REQUEST_INTERVAL_MS - sinceLastRequest);
+                return;
+            }
+            if (!googleClient.isConnected()) {
+                /* onConnected asks again */
+                return;
+            }
+            mLastWeatherRequestMillis = SystemClock.elapsedRealtime();
+            sendMessageForWeatherInfoUpdate();
+        }
+
         private void sendMessageForWeatherInfoUpdate() {
             PutDataMapRequest request = PutDataMapRequest.create(getString(R.string.sunshine_weather_update_path));
             DataMap map = request.getDataMap();
@@ -208,7 +349,7 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
 
         @Override
         public void onConnected(@Nullable Bundle bundle) {
-            sendMessageForWeatherInfoUpdate();
+            requestWeatherUpdate();
         }
 
         @Override
@@ -222,9 +363,31 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
         @Override
         public void onDestroy() {
             mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mUpdateTimeHandler.removeMessages(MSG_WEATHER_CHANGED);
+            mUpdateTimeHandler.removeMessages(MSG_REQUEST_WEATHER);
+            WeatherSnapshot.removeListener(mWeatherListener);
+            releaseStaticLayer();
+            releaseGlyphs();
             super.onDestroy();
         }
 
+        @Override
+        public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+            super.onSurfaceChanged(holder, format, width, height);
+            releaseStaticLayer();
+            mStaticLayer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mStaticCanvas = new Canvas(mStaticLayer);
+            mStaticLayerDirty = true;
+        }
+
+        private void releaseStaticLayer() {
+            if (mStaticLayer != null) {
+                mStaticLayer.recycle();
+                mStaticLayer = null;
+                mStaticCanvas = null;
+            }
+        }
+
         private TextPaint createTextPaint(int textColor, float textSize, Typeface typeface) {
             TextPaint textPaint = new TextPaint();
             textPaint.setColor(textColor);
@@ -241,7 +404,7 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
             if (visible) {
                 registerReceiver();
                 // Update time zone in case it changed while we weren't visible.
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                updateTimeZone();
                 invalidate();
             } else {
                 unregisterReceiver();
@@ -286,6 +449,8 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
         public void onPropertiesChanged(Bundle properties) {
             super.onPropertiesChanged(properties);
             mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
+            mBurnInProtection = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
+            releaseGlyphs();
         }
 
         @Override
@@ -298,11 +463,13 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
         public void onAmbientModeChanged(boolean inAmbientMode) {
             super.onAmbientModeChanged(inAmbientMode);
             if (mAmbient != inAmbientMode) {
+                logFrameCost(mAmbient ? mAmbientFrameCost : mInteractiveFrameCost);
                 mAmbient = inAmbientMode;
                 if (mLowBitAmbient) {
                     mTimePaint.setAntiAlias(!inAmbientMode);
                     mDatePaint.setAntiAlias(!inAmbientMode);
                 }
+                mStaticLayerDirty = true;
                 invalidate();
             }
 
@@ -326,7 +493,7 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
                     break;
                 case TAP_TYPE_TAP:
                     // The user has completed the tap gesture.
-                    sendMessageForWeatherInfoUpdate();
+                    requestWeatherUpdate();
                     Toast.makeText(getApplicationContext(), R.string.message, Toast.LENGTH_SHORT)
                             .show();
                     break;
@@ -336,73 +503,216 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
 
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
+            long frameStart = System.nanoTime();
+            long now = System.currentTimeMillis();
+            mCalendar.setTimeInMillis(now);
+            updateTimeChars();
+            if (updateDate(now) | updateWeather()) {
+                mStaticLayerDirty = true;
+            }
+
+            if (mAmbient) {
+                drawAmbientFrame(canvas, bounds);
+                mAmbientFrameCost.record(frameStart);
+            } else {
+                drawInteractiveFrame(canvas, bounds);
+                mInteractiveFrameCost.record(frameStart);
+            }
+        }
+
+        /**
+         * Draws H:MM:SS over the static layer, from the interactive glyph atlas.
+         */
+        private void drawInteractiveFrame(Canvas canvas, Rect bounds) {
+            drawStaticLayerAt(canvas, bounds, 0, 0);
+
+            int timeX = Math.abs(bounds.centerX() - mTimeBounds.centerX());
+            int timeY = Math.abs(bounds.centerY() - mDateBounds.height() - (mTimeBounds.height() / 2));
+
+            if (mInteractiveGlyphs == null || !mInteractiveGlyphs.matches(mTimePaint)) {
+                if (mInteractiveGlyphs != null) {
+                    mInteractiveGlyphs.recycle();
+                }
+                mInteractiveGlyphs = new TimeGlyphCache(mTimePaint);
+            }
+
+            mInteractiveGlyphs.drawText(canvas, mTimeChars, 0, mTimeChars.length, timeX, timeY);
+        }
+
+        /**
+         * Draws H:MM over the static layer, from the ambient glyph atlas and moved by the burn-in
+         * offset for this minute if the display needs it.
+         */
+        private void drawAmbientFrame(Canvas canvas, Rect bounds) {
+            int offsetX = 0;
+            int offsetY = 0;
+            if (mBurnInProtection) {
+                int position = mCalendar.get(Calendar.MINUTE) % 4;
+                offsetX = position == 1 || position == 2 ? BURN_IN_OFFSET_PX : 0;
+                offsetY = position >= 2 ? BURN_IN_OFFSET_PX : 0;
+                /* Clear the strip the moved layer no longer covers */
+                canvas.drawColor(Color.BLACK);
+            }
+            drawStaticLayerAt(canvas, bounds, offsetX, offsetY);
+
+            if (mAmbientGlyphs == null || !mAmbientGlyphs.matches(mTimePaint)) {
+                if (mAmbientGlyphs != null) {
+                    mAmbientGlyphs.recycle();
+                }
+                mAmbientGlyphs = new TimeGlyphCache(mTimePaint);
+            }
+
+            int timeX = Math.abs(bounds.centerX() - mAmbientTimeBounds.centerX());
+            int timeY = Math.abs(bounds.centerY() - 30);
+
+            mAmbientGlyphs.drawText(canvas, mTimeChars, 0, AMBIENT_TIME_TEMPLATE.length(),
+                    timeX + offsetX, timeY + offsetY);
+        }
+
+        /**
+         * Draws the background, date and weather, from the static layer when we have one.
+         */
+        private void drawStaticLayerAt(Canvas canvas, Rect bounds, int offsetX, int offsetY) {
+            if (mStaticLayer == null) {
+                canvas.save();
+                canvas.translate(offsetX, offsetY);
+                drawStaticLayer(canvas, bounds);
+                canvas.restore();
+                return;
+            }
+
+            if (mStaticLayerDirty) {
+                drawStaticLayer(mStaticCanvas, bounds);
+                mStaticLayerDirty = false;
+            }
+            canvas.drawBitmap(mStaticLayer, offsetX, offsetY, null);
+        }
+
+        private void releaseGlyphs() {
+            if (mInteractiveGlyphs != null) {
+                mInteractiveGlyphs.recycle();
+                mInteractiveGlyphs = null;
+            }
+            if (mAmbientGlyphs != null) {
+                mAmbientGlyphs.recycle();
+                mAmbientGlyphs = null;
+            }
+        }
+
+        private void logFrameCost(FrameCostCounter frameCost) {
+            if (frameCost.getFrameCount() > 0) {
+                Log.d(TAG, frameCost.toString());
+                frameCost.reset();
+            }
+        }
+
+        /**
+         * Draws everything but the time: the background, the date, and outside ambient mode the
+         * divider and the weather.
+         */
+        private void drawStaticLayer(Canvas canvas, Rect bounds) {
             // Draw the background.
             if (isInAmbientMode()) {
                 canvas.drawColor(Color.BLACK);
             } else {
                 canvas.drawRect(0, 0, bounds.width(), bounds.height(), mBackgroundPaint);
             }
-            long now = System.currentTimeMillis();
-            mCalendar.setTimeInMillis(now);
-            currentTime = mCalendar.getTimeInMillis();
-            // Draw H:MM in ambient mode or H:MM:SS in interactive mode.
-
-            Rect timeBounds = new Rect();
-            Rect dateBounds = new Rect();
-            Rect lowBounds = new Rect();
-            Rect highBounds = new Rect();
-            Rect errorBounds = new Rect();
-            String time;
-            String date;
+
             if (mAmbient) {
-                time = ambientTimeFormat.format(currentTime);
-                date = dateFormat.format(currentTime);
-                mTimePaint.getTextBounds(time, 0, time.length(), timeBounds);
-                mDatePaint.getTextBounds(date, 0, date.length(), dateBounds);
-                int timeX = Math.abs(bounds.centerX() - timeBounds.centerX());
-                int timeY = Math.abs(bounds.centerY() - 30);
-
-                int dateX = Math.abs(bounds.centerX() - dateBounds.centerX());
+                int dateX = Math.abs(bounds.centerX() - mDateBounds.centerX());
                 int dateY = Math.abs(bounds.centerY() + 30);
 
-                canvas.drawText(time, timeX, timeY, mTimePaint);
-                canvas.drawText(date, dateX, dateY, mDatePaint);
+                canvas.drawText(mDateText, dateX, dateY, mDatePaint);
             } else {
-                time = timeFormat.format(currentTime);
-//                time = String.format(Locale.getDefault(), "%d:%02d:%02d", mCalendar.get(Calendar.HOUR), mCalendar.get(Calendar.MINUTE), mCalendar.get(Calendar.SECOND));
-
-                date = dateFormat.format(currentTime);
-                mTimePaint.getTextBounds(time, 0, time.length(), timeBounds);
-                mDatePaint.getTextBounds(date, 0, date.length(), dateBounds);
-                mLowPaint.getTextBounds(lowTemp, 0, lowTemp.length(), lowBounds);
-                mHighPaint.getTextBounds(highTemp, 0, highTemp.length(), highBounds);
-
-                int timeX = Math.abs(bounds.centerX() - timeBounds.centerX());
-                int timeY = Math.abs(bounds.centerY() - dateBounds.height() - (timeBounds.height() / 2));
-
-                int dateX = Math.abs(bounds.centerX() - dateBounds.centerX());
-                int dateY = Math.abs(bounds.centerY() - dateBounds.centerY());
+                int dateX = Math.abs(bounds.centerX() - mDateBounds.centerX());
+                int dateY = Math.abs(bounds.centerY() - mDateBounds.centerY());
 
-                canvas.drawText(time, timeX, timeY, mTimePaint);
-                canvas.drawText(date, dateX, dateY, mDatePaint);
+                canvas.drawText(mDateText, dateX, dateY, mDatePaint);
                 canvas.drawLine(bounds.centerX() - 50, bounds.centerX() + 30, bounds.centerX() + 50, bounds.centerY() + 30, mDivider);
 
             /*
              * Display Weather information, check data has been updated from listener service
              */
-                if (weatherIcon != null) {
-                    //weatherIcon.setHeight(highBounds.height());
-                    //weatherIcon.setWidth(highBounds.height());
-                    canvas.drawBitmap(weatherIcon, bounds.centerX() - weatherIcon.getWidth() - 50, bounds.centerY() + dateBounds.height() + 15, null);
-                    canvas.drawText(highTemp, bounds.centerX() - lowBounds.centerX(), bounds.centerY() + dateBounds.height() + 55, mHighPaint);
-                    canvas.drawText(lowTemp, bounds.centerX() + 50, bounds.centerY() + dateBounds.height() + 55, mLowPaint);
+                if (mWeather.hasWeather()) {
+                    Bitmap weatherIcon = mWeather.getWeatherIcon();
+                    canvas.drawBitmap(weatherIcon, bounds.centerX() - weatherIcon.getWidth() - 50, bounds.centerY() + mDateBounds.height() + 15, null);
+                    canvas.drawText(mWeather.getHighTemp(), bounds.centerX() - mLowBounds.centerX(), bounds.centerY() + mDateBounds.height() + 55, mHighPaint);
+                    canvas.drawText(mWeather.getLowTemp(), bounds.centerX() + 50, bounds.centerY() + mDateBounds.height() + 55, mLowPaint);
                 } else {
-                    mErrorPaint.getTextBounds("Requesting...", 0, 13, errorBounds);
-                    canvas.drawText("Requesting...", bounds.centerX() - errorBounds.centerX(), bounds.centerY() + 70, mErrorPaint);
+                    canvas.drawText(REQUESTING_TEXT, bounds.centerX() - mErrorBounds.centerX(), bounds.centerY() + 70, mErrorPaint);
                 }
             }
+        }
 
+        /**
+         * Writes the current time from mCalendar into mTimeChars, as HH:mm:ss, without creating
+         * any Strings.
+         */
+        private void updateTimeChars() {
+            int hour = mCalendar.get(Calendar.HOUR_OF_DAY);
+            int minute = mCalendar.get(Calendar.MINUTE);
+            int second = mCalendar.get(Calendar.SECOND);
+            mTimeChars[0] = (char) ('0' + hour / 10);
+            mTimeChars[1] = (char) ('0' + hour % 10);
+            mTimeChars[3] = (char) ('0' + minute / 10);
+            mTimeChars[4] = (char) ('0' + minute % 10);
+            mTimeChars[6] = (char) ('0' + second / 10);
+            mTimeChars[7] = (char) ('0' + second % 10);
+        }
 
+        /**
+         * Formats and measures the date, but only if the day has changed since the last time.
+         *
+         * @return true if the date changed
+         */
+        private boolean updateDate(long now) {
+            int day = mCalendar.get(Calendar.YEAR) * 1000 + mCalendar.get(Calendar.DAY_OF_YEAR);
+            if (day == mDateDay) {
+                return false;
+            }
+            mDateDay = day;
+            mDateText = dateFormat.format(now);
+            mDatePaint.getTextBounds(mDateText, 0, mDateText.length(), mDateBounds);
+            return true;
+        }
+
+        /**
+         * Picks up the weather the listener service has published since the last frame, and
+         * measures the temperatures again if there is a new snapshot.
+         *
+         * @return true if the weather changed
+         */
+        private boolean updateWeather() {
+            WeatherSnapshot snapshot = WeatherSnapshot.getCurrent();
+            if (mWeather != null && snapshot.getVersion() == mWeather.getVersion()) {
+                return false;
+            }
+            mWeather = snapshot;
+            String low = snapshot.getLowTemp();
+            String high = snapshot.getHighTemp();
+            mLowPaint.getTextBounds(low, 0, low.length(), mLowBounds);
+            mHighPaint.getTextBounds(high, 0, high.length(), mHighBounds);
+            return true;
+        }
+
+        /**
+         * Measures the text whose bounds never change: the time, as the digital font is
+         * monospaced, and the text shown while we wait for weather data.
+         */
+        private void measureFixedText() {
+            mTimePaint.getTextBounds(TIME_TEMPLATE, 0, TIME_TEMPLATE.length(), mTimeBounds);
+            mTimePaint.getTextBounds(AMBIENT_TIME_TEMPLATE, 0, AMBIENT_TIME_TEMPLATE.length(), mAmbientTimeBounds);
+            mErrorPaint.getTextBounds(REQUESTING_TEXT, 0, REQUESTING_TEXT.length(), mErrorBounds);
+        }
+
+        /**
+         * Picks up the current time zone, and makes sure the date is formatted again in it.
+         */
+        private void updateTimeZone() {
+            TimeZone timeZone = TimeZone.getDefault();
+            mCalendar.setTimeZone(timeZone);
+            dateFormat.setTimeZone(timeZone);
+            mDateDay = -1;
         }
 
         /**
@@ -424,6 +734,16 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
             return isVisible() && !isInAmbientMode();
         }
 
+        /**
+         * Redraws after new weather was published, unless this frame has already drawn it.
+         */
+        private void handleWeatherChangedMessage() {
+            if (mWeather == null
+                    || WeatherSnapshot.getCurrent().getVersion() != mWeather.getVersion()) {
+                invalidate();
+            }
+        }
+
         /**
          * Handle updating the time periodically in interactive mode.
          */
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * The characters of the time, 0 to 9 and the colon, drawn once side by side into a single atlas
+ * bitmap with the paint they are shown with. Drawing the time is then a matter of copying a few
+ * cells of the atlas, rather than shaping and rasterizing text every second.
+ * <p>
+ * A cache only fits the text size and anti-aliasing it was drawn with, so the watch face keeps
+ * one for interactive and one for ambient mode, and draws a new one when {@link #matches(Paint)}
+ * says the paint has changed. Only used from the UI thread.
+ */
+final class TimeGlyphCache {
+
+    private static final String GLYPHS = "0123456789:";
+
+    private static final int COLON_INDEX = 10;
+
+    private final Bitmap mAtlas;
+
+    /* Where each glyph's cell starts in the atlas, and how far the text advances after it */
+    private final int[] mCellLefts = new int[GLYPHS.length()];
+    private final int[] mCellWidths = new int[GLYPHS.length()];
+    private final float[] mAdvances = new float[GLYPHS.length()];
+
+    /* Distance from the baseline up to the top of the atlas, a positive number */
+    private final float mAscent;
+
+    /* What the atlas was drawn with, to tell whether it still fits the paint */
+    private final float mTextSize;
+    private final boolean mAntiAlias;
+
+    /* Reused for every cell drawn, so drawing allocates nothing */
+    private final Rect mSource = new Rect();
+    private final Rect mDestination = new Rect();
+
+    /**
+     * Draws every glyph with a copy of the paint, so later changes to the paint don't affect the
+     * cache.
+     *
+     * @param paint The paint the time is drawn with
+     */
+    TimeGlyphCache(Paint paint) {
+        Paint glyphPaint = new Paint(paint);
+        mTextSize = glyphPaint.getTextSize();
+        mAntiAlias = glyphPaint.isAntiAlias();
+
+        Paint.FontMetrics metrics = glyphPaint.getFontMetrics();
+        mAscent = (float) Math.ceil(-metrics.top);
+        int height = Math.max(1, (int) (mAscent + Math.ceil(metrics.bottom)));
+
+        char[] glyphs = GLYPHS.toCharArray();
+        int atlasWidth = 0;
+        for (int i = 0; i < glyphs.length; i++) {
+            mAdvances[i] = glyphPaint.measureText(glyphs, i, 1);
+            mCellLefts[i] = atlasWidth;
+            mCellWidths[i] = Math.max(1, (int) Math.ceil(mAdvances[i]));
+            atlasWidth += mCellWidths[i];
+        }
+
+        mAtlas = Bitmap.createBitmap(atlasWidth, height, Bitmap.Config.ARGB_8888);
+        Canvas atlasCanvas = new Canvas(mAtlas);
+        for (int i = 0; i < glyphs.length; i++) {
+            atlasCanvas.drawText(glyphs, i, 1, mCellLefts[i], mAscent, glyphPaint);
+        }
+    }
+
+    /**
+     * @param paint The paint the time is about to be drawn with
+     * @return Whether this cache was drawn with the same text size and anti-aliasing
+     */
+    boolean matches(Paint paint) {
+        return paint.getTextSize() == mTextSize && paint.isAntiAlias() == mAntiAlias;
+    }
+
+    /**
+     * Draws the time in the same place Canvas#drawText would have drawn it with the paint the
+     * cache was created with.
+     *
+     * @param canvas The canvas to draw on
+     * @param text   The time, only digits and colons
+     * @param start  The first character to draw
+     * @param count  How many characters to draw
+     * @param x      Where the text starts
+     * @param y      The baseline of the text
+     */
+    void drawText(Canvas canvas, char[] text, int start, int count, float x, float y) {
+        int top = Math.round(y - mAscent);
+        int bottom = top + mAtlas.getHeight();
+        for (int i = start; i < start + count; i++) {
+            int index = indexOf(text[i]);
+            int left = Math.round(x);
+            mSource.set(mCellLefts[index], 0, mCellLefts[index] + mCellWidths[index],
+                    mAtlas.getHeight());
+            mDestination.set(left, top, left + mCellWidths[index], bottom);
+            canvas.drawBitmap(mAtlas, mSource, mDestination, null);
+            x += mAdvances[index];
+        }
+    }
+
+    void recycle() {
+        mAtlas.recycle();
+    }
+
+    private static int indexOf(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : COLON_INDEX;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.util.SparseArray;
+
+/**
+ * The weather icons bundled with the watch face, so that the phone only has to tell us the
+ * OpenWeatherMap condition id rather than send the icon itself. The icons are the same ones the
+ * phone app shows in its forecast list, already scaled for each screen density.
+ */
+public final class WeatherIcons {
+
+    private static final String TAG = WeatherIcons.class.getSimpleName();
+
+    /* Decoded icons, keyed by drawable resource ID, guarded by itself */
+    private static final SparseArray<Bitmap> sIcons = new SparseArray<>();
+
+    /* The lowest and highest condition ids OpenWeatherMap sends */
+    private static final int FIRST_WEATHER_ID = 200;
+    private static final int LAST_WEATHER_ID = 962;
+
+    /*
+     * The icon of every condition, indexed by (weatherId - FIRST_WEATHER_ID) and filled in once
+     * when the class is loaded. A 0 marks an id OpenWeatherMap doesn't define.
+     */
+    private static final int[] sIconResourceIds = new int[LAST_WEATHER_ID - FIRST_WEATHER_ID + 1];
+
+    static {
+        /*
+         * Based on weather code data for Open Weather Map. 761 (dust) is part of the fog range.
+         * If ranges ever overlap, the first one put wins.
+         */
+        putIcon(200, 232, R.drawable.ic_storm);
+        putIcon(300, 321, R.drawable.ic_light_rain);
+        putIcon(500, 504, R.drawable.ic_rain);
+        putIcon(511, 511, R.drawable.ic_snow);
+        putIcon(520, 531, R.drawable.ic_rain);
+        putIcon(600, 622, R.drawable.ic_snow);
+        putIcon(701, 761, R.drawable.ic_fog);
+        putIcon(771, 771, R.drawable.ic_storm);
+        putIcon(781, 781, R.drawable.ic_storm);
+        putIcon(800, 800, R.drawable.ic_clear);
+        putIcon(801, 801, R.drawable.ic_light_clouds);
+        putIcon(802, 804, R.drawable.ic_cloudy);
+        putIcon(900, 906, R.drawable.ic_storm);
+        putIcon(958, 962, R.drawable.ic_storm);
+        putIcon(951, 957, R.drawable.ic_clear);
+    }
+
+    private WeatherIcons() {
+    }
+
+    private static void putIcon(int firstWeatherId, int lastWeatherId, int iconResourceId) {
+        for (int weatherId = firstWeatherId; weatherId <= lastWeatherId; weatherId++) {
+            if (sIconResourceIds[weatherId - FIRST_WEATHER_ID] == 0) {
+                sIconResourceIds[weatherId - FIRST_WEATHER_ID] = iconResourceId;
+            }
+        }
+    }
+
+    /**
+     * Returns the icon for a weather condition. Each icon is only decoded the first time it is
+     * needed, after that the same Bitmap is returned for as long as the process lives.
+     *
+     * @param context   Used to access resources
+     * @param weatherId from OpenWeatherMap API response
+     * @return The icon for the condition
+     */
+    public static Bitmap getIconForWeatherCondition(Context context, int weatherId) {
+        int iconResourceId = getIconResourceIdForWeatherCondition(weatherId);
+        synchronized (sIcons) {
+            Bitmap icon = sIcons.get(iconResourceId);
+            if (icon == null) {
+                icon = BitmapFactory.decodeResource(context.getResources(), iconResourceId);
+                sIcons.put(iconResourceId, icon);
+            }
+            return icon;
+        }
+    }
+
+    /**
+     * Returns the icon resource id for a weather condition. This has to be kept in step with the
+     * art table in SunshineWeatherUtils in the phone app.
+     *
+     * @param weatherId from OpenWeatherMap API response
+     *                  See http://openweathermap.org/weather-conditions for a list of all IDs
+     * @return resource id for the corresponding icon
+     */
+    public static int getIconResourceIdForWeatherCondition(int weatherId) {
+        int iconResourceId = 0;
+        if (weatherId >= FIRST_WEATHER_ID && weatherId <= LAST_WEATHER_ID) {
+            iconResourceId = sIconResourceIds[weatherId - FIRST_WEATHER_ID];
+        }
+        if (iconResourceId == 0) {
+            Log.e(TAG, "Unknown Weather: " + weatherId);
+            return R.drawable.ic_storm;
+        }
+        return iconResourceId;
+    }
+}
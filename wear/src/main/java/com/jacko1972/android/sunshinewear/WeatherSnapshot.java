@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jacko1972.android.sunshinewear;
+
+import android.graphics.Bitmap;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The weather the watch face shows, as received from the phone. A snapshot never changes once it
+ * is created. New weather is published as a new snapshot with the next version number, so the
+ * watch face, which reads it on the UI thread, always sees a complete set of values and can tell
+ * from the version alone whether anything changed since it last drew.
+ */
+public final class WeatherSnapshot {
+
+    /**
+     * Told whenever a new snapshot is published. Listeners are called on the publishing thread.
+     */
+    public interface Listener {
+        void onWeatherChanged(WeatherSnapshot snapshot);
+    }
+
+    /* What the watch face shows before the phone has sent any weather */
+    private static final WeatherSnapshot EMPTY = new WeatherSnapshot(0, "0°", "0°", null);
+
+    private static final AtomicReference<WeatherSnapshot> sCurrent = new AtomicReference<>(EMPTY);
+
+    private static final List<Listener> sListeners = new CopyOnWriteArrayList<>();
+
+    private final long mVersion;
+    private final String mLowTemp;
+    private final String mHighTemp;
+    private final Bitmap mWeatherIcon;
+
+    private WeatherSnapshot(long version, String lowTemp, String highTemp, Bitmap weatherIcon) {
+        mVersion = version;
+        mLowTemp = lowTemp;
+        mHighTemp = highTemp;
+        mWeatherIcon = weatherIcon;
+    }
+
+    /**
+     * Returns the latest weather. This can be called from any thread.
+     *
+     * @return The latest snapshot, never null
+     */
+    public static WeatherSnapshot getCurrent() {
+        return sCurrent.get();
+    }
+
+    /**
+     * Publishes new weather as the next version, and tells the listeners about it.
+     *
+     * @param lowTemp     The low temperature, ready to draw
+     * @param highTemp    The high temperature, ready to draw
+     * @param weatherIcon The icon of the weather condition
+     * @return The snapshot that was published
+     */
+    public static WeatherSnapshot publish(String lowTemp, String highTemp, Bitmap weatherIcon) {
+        WeatherSnapshot current;
+        WeatherSnapshot next;
+        do {
+            current = sCurrent.get();
+            next = new WeatherSnapshot(current.mVersion + 1, lowTemp, highTemp, weatherIcon);
+        } while (!sCurrent.compareAndSet(current, next));
+
+        for (Listener listener : sListeners) {
+            listener.onWeatherChanged(next);
+        }
+        return next;
+    }
+
+    public static void addListener(Listener listener) {
+        sListeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        sListeners.remove(listener);
+    }
+
+    /**
+     * @return The version of this snapshot, which goes up by one with every publish. The empty
+     * snapshot, before any weather arrived, is version 0.
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * @return Whether this snapshot holds weather from the phone, rather than the placeholder
+     * shown until the first weather arrives
+     */
+    public boolean hasWeather() {
+        return mWeatherIcon != null;
+    }
+
+    public String getLowTemp() {
+        return mLowTemp;
+    }
+
+    public String getHighTemp() {
+        return mHighTemp;
+    }
+
+    public Bitmap getWeatherIcon() {
+        return mWeatherIcon;
+    }
+}